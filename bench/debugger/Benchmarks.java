@@ -0,0 +1,35 @@
+package debugger;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks matching a pattern with the gc profiler, once for each thread count
+ * from 1 up to a maximum, doubling each time. Results are written as JSON to
+ * jmh-result-&lt;threads&gt;.json so they can be compared between runs.
+ * <p>
+ * Usage: Benchmarks [pattern] [maxThreads]
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws RunnerException {
+		String pattern = (args.length > 0) ? args[0] : ".*Benchmark.*";
+		int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+		
+		for(int threads = 1; threads <= maxThreads; threads *= 2) {
+			Options options = new OptionsBuilder()
+				.include(pattern)
+				.threads(threads)
+				.addProfiler(GCProfiler.class)
+				.jvmArgsAppend("-Djdk.attach.allowAttachSelf=true")
+				.resultFormat(ResultFormatType.JSON)
+				.result("jmh-result-" + threads + ".json")
+				.build();
+			
+			new Runner(options).run();
+		}
+	}
+}
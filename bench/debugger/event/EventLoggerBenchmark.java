@@ -0,0 +1,104 @@
+package debugger.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of logging one event through each EventLogger entry point, as called by
+ * instrumented code. Run with more than one thread to measure contention on the event buffer,
+ * and with the gc profiler to measure the allocation per event.
+ * <p>
+ * Every event is kept until the log is cleared, so the log is cleared before each iteration,
+ * and iterations are kept short so that the heap doesn't fill.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventLoggerBenchmark {
+	private static final String CLASS_NAME = "debugger/event/EventLoggerBenchmark";
+	private static final int LINE_NUMBER = 10;
+	
+	private final Object object = new Object();
+	private final Object[] array = new Object[16];
+	private final List<Integer> list = new ArrayList<>();
+	private final Object[] args = { 1, "a" };
+	private final Object[] noArgs = {};
+	private final Integer value = 42;
+	
+	private int methodIndex;
+	
+	@Setup(Level.Iteration)
+	public void clear() {
+		EventLogger.clear();
+		methodIndex = EventLogger.nextMethodIndex();
+	}
+	
+	@Benchmark
+	public void store() {
+		EventLogger.store(1, value, LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void putField() {
+		EventLogger.putField(object, "field", value, LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void storeArray() {
+		EventLogger.storeArray(array, 3, value, LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void invokeMethod() {
+		EventLogger.invokeMethod(object, "java/lang/Object", args, "equals", "(Ljava/lang/Object;)Z", LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void invokeSpecialMethod() {
+		EventLogger.invokeSpecialMethod(object, "java/lang/Object", noArgs, "<init>", "()V", LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void invokeStaticMethod() {
+		EventLogger.invokeStaticMethod(CLASS_NAME, args, "f", "(ILjava/lang/String;)I", LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	/**
+	 * Logs the call of a method on a list, which also logs a snapshot of the list.
+	 */
+	@Benchmark
+	public void invokeMethodAfter_list() {
+		EventLogger.invokeMethodAfter(list, "java/util/ArrayList", args, "size", "()I", LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void enterMethod() {
+		EventLogger.enterMethod(CLASS_NAME, "f", "(ILjava/lang/String;)I", args, LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void returnValue() {
+		EventLogger.returnValue(value, LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+	
+	@Benchmark
+	public void exitWithValue() {
+		EventLogger.exitWithValue(value, LINE_NUMBER, Thread.currentThread(), methodIndex);
+	}
+}
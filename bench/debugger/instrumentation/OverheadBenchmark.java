@@ -0,0 +1,212 @@
+package debugger.instrumentation;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import debugger.event.EventLogger;
+import debugger.instrumentation.InstrumentorTest.TestMethodsClass;
+import debugger.model.QuickSort;
+
+/**
+ * Measures the slowdown from instrumenting a set of workloads. Each workload is timed without
+ * instrumentation, then its classes are instrumented, timing the transform of each class, and
+ * then it is timed again while counting the events logged and the bytes allocated. The results
+ * are printed and written as JSON to the given file, or overhead.json.
+ * <p>
+ * This needs to run with -Djdk.attach.allowAttachSelf=true so that the instrumentor can attach.
+ * <p>
+ * Usage: OverheadBenchmark [output file] [milliseconds per measurement]
+ */
+public class OverheadBenchmark {
+	/**
+	 * The maximum number of events to keep before clearing the log, so that the heap doesn't fill.
+	 */
+	private static final int MAX_EVENTS = 1_000_000;
+	
+	private static class Workload {
+		private final String name;
+		private final List<Class<?>> classes;
+		private final Runnable operation;
+		
+		public Workload(String name, List<Class<?>> classes, Runnable operation) {
+			this.name = name;
+			this.classes = classes;
+			this.operation = operation;
+		}
+	}
+	
+	private static class Measurement {
+		private long operations;
+		private long nanos;
+		private long events;
+		private long bytes;
+		
+		public double getNanosPerOperation() {
+			return (double) nanos / operations;
+		}
+		
+		public double getEventsPerOperation() {
+			return (double) events / operations;
+		}
+		
+		public double getBytesPerOperation() {
+			return (double) bytes / operations;
+		}
+	}
+	
+	private static volatile Object sink;
+	
+	private final long measureMillis;
+	
+	public OverheadBenchmark(long measureMillis) {
+		this.measureMillis = measureMillis;
+	}
+	
+	private static List<Workload> createWorkloads() {
+		Random random = new Random(0);
+		List<Integer> values = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			values.add(random.nextInt(1000));
+		}
+		
+		TestMethodsClass testMethods = new TestMethodsClass();
+		
+		return Arrays.asList(
+			new Workload("quickSort", Arrays.asList(QuickSort.class), () -> sink = QuickSort.sort(values)),
+			new Workload("recursiveMethod", Arrays.asList(TestMethodsClass.class), () -> sink = testMethods.recursiveMethod(20, true)),
+			new Workload("writeArray", Arrays.asList(TestMethodsClass.class), () -> testMethods.writeArray()),
+			new Workload("exceptions", Arrays.asList(Workloads.class), () -> sink = Workloads.throwAndCatch(10, 10)),
+			new Workload("collections", Arrays.asList(Workloads.class), () -> sink = Workloads.collections(100))
+		);
+	}
+	
+	/**
+	 * Runs an operation for the measurement time after warming it up for the same time.
+	 */
+	private Measurement measure(Runnable operation) {
+		run(operation);
+		return run(operation);
+	}
+	
+	private Measurement run(Runnable operation) {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		
+		EventLogger.clear();
+		
+		Measurement measurement = new Measurement();
+		long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long end = start + measureMillis * 1_000_000;
+		
+		long now;
+		do {
+			operation.run();
+			measurement.operations++;
+			
+			int events = EventLogger.getEventBuffer().size();
+			if(events > MAX_EVENTS) {
+				measurement.events += events;
+				EventLogger.clear();
+			}
+			now = System.nanoTime();
+		} while(now < end);
+		
+		measurement.nanos = now - start;
+		measurement.bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+		measurement.events += EventLogger.getEventBuffer().size();
+		
+		EventLogger.clear();
+		return measurement;
+	}
+	
+	public String run() {
+		List<Workload> workloads = createWorkloads();
+		
+		Map<Workload, Measurement> plain = new LinkedHashMap<>();
+		for(Workload workload:workloads) {
+			plain.put(workload, measure(workload.operation));
+		}
+		
+		// Instrument a class first so that attaching the agent and loading the classes used
+		// to transform aren't counted in the transform time of the first workload.
+		Instrumentor instrumentor = new Instrumentor();
+		instrumentor.instrumentClass(Workloads.Warmup.class);
+		
+		Map<String, Double> transformMillis = new LinkedHashMap<>();
+		for(Workload workload:workloads) {
+			for(Class<?> clazz:workload.classes) {
+				if(!transformMillis.containsKey(clazz.getName())) {
+					long start = System.nanoTime();
+					instrumentor.instrumentClass(clazz);
+					transformMillis.put(clazz.getName(), (System.nanoTime() - start) / 1e6);
+				}
+			}
+		}
+		
+		Map<Workload, Measurement> instrumented = new LinkedHashMap<>();
+		for(Workload workload:workloads) {
+			instrumented.put(workload, measure(workload.operation));
+		}
+		
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"workloads\": [\n");
+		for(int i = 0; i < workloads.size(); i++) {
+			Workload workload = workloads.get(i);
+			Measurement before = plain.get(workload);
+			Measurement after = instrumented.get(workload);
+			
+			double eventsPerOperation = after.getEventsPerOperation();
+			double eventsPerSecond = after.events / (after.nanos / 1e9);
+			double bytesPerEvent = (after.getBytesPerOperation() - before.getBytesPerOperation()) / eventsPerOperation;
+			
+			json.append("    {");
+			appendField(json, "name", "\"" + workload.name + "\"").append(", ");
+			appendField(json, "plainNsPerOp", format(before.getNanosPerOperation())).append(", ");
+			appendField(json, "instrumentedNsPerOp", format(after.getNanosPerOperation())).append(", ");
+			appendField(json, "slowdown", format(after.getNanosPerOperation() / before.getNanosPerOperation())).append(", ");
+			appendField(json, "eventsPerOp", format(eventsPerOperation)).append(", ");
+			appendField(json, "eventsPerSecond", format(eventsPerSecond)).append(", ");
+			appendField(json, "bytesPerEvent", format(bytesPerEvent));
+			json.append((i < workloads.size() - 1) ? "},\n" : "}\n");
+		}
+		json.append("  ],\n  \"transformMillis\": {\n");
+		int classIndex = 0;
+		for(Map.Entry<String, Double> entry:transformMillis.entrySet()) {
+			json.append("    ");
+			appendField(json, entry.getKey(), format(entry.getValue()));
+			json.append((++classIndex < transformMillis.size()) ? ",\n" : "\n");
+		}
+		json.append("  }\n}\n");
+		
+		return json.toString();
+	}
+	
+	private static StringBuilder appendField(StringBuilder json, String name, String value) {
+		return json.append("\"").append(name).append("\": ").append(value);
+	}
+	
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		String outputFile = (args.length > 0) ? args[0] : "overhead.json";
+		long measureMillis = (args.length > 1) ? Long.parseLong(args[1]) : 2000;
+		
+		String json = new OverheadBenchmark(measureMillis).run();
+		
+		System.out.print(json);
+		Files.write(Paths.get(outputFile), json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,69 @@
+package debugger.instrumentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Workloads for the overhead benchmark that aren't covered by the test classes.
+ */
+public class Workloads {
+	/**
+	 * A class that is instrumented before the workloads, to warm up the instrumentor.
+	 */
+	public static class Warmup {
+		public static int f(int x) {
+			return x + 1;
+		}
+	}
+	
+	/**
+	 * Throws an exception through a chain of calls and catches it, a number of times.
+	 */
+	public static int throwAndCatch(int times, int depth) {
+		int caught = 0;
+		for(int i = 0; i < times; i++) {
+			try {
+				throwAtDepth(depth);
+			} catch(IllegalStateException e) {
+				caught++;
+			}
+		}
+		return caught;
+	}
+	
+	private static void throwAtDepth(int depth) {
+		if(depth == 0) {
+			throw new IllegalStateException();
+		}
+		throwAtDepth(depth - 1);
+	}
+	
+	/**
+	 * Fills, sorts, and filters a list, and counts into a map.
+	 */
+	public static int collections(int size) {
+		List<Integer> list = new ArrayList<>();
+		Map<Integer, Integer> counts = new HashMap<>();
+		
+		for(int i = 0; i < size; i++) {
+			list.add(i);
+			Integer count = counts.get(i % 10);
+			counts.put(i % 10, (count == null) ? 1 : count + 1);
+		}
+		
+		Collections.sort(list, Collections.reverseOrder());
+		
+		Iterator<Integer> iterator = list.iterator();
+		while(iterator.hasNext()) {
+			if(iterator.next() % 3 == 0) {
+				iterator.remove();
+			}
+		}
+		
+		return list.size() + counts.size();
+	}
+}
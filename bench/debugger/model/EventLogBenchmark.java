@@ -0,0 +1,125 @@
+package debugger.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import debugger.event.Events.Event;
+
+/**
+ * Measures the EventLog queries used by the views over synthetic traces, at random indices
+ * and while stepping through the trace one event at a time. The size of the trace, the number
+ * of threads, the maximum call depth, and the probability of each event being a list mutation
+ * can be set with JMH parameters. Use -p to pick a subset, since traces of 100M events need a
+ * heap of about 16GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class EventLogBenchmark {
+	private static final int RANDOM_INDICES = 1024;
+	
+	@Param({ "1000000", "10000000", "100000000" })
+	public int events;
+	
+	@Param({ "1", "4" })
+	public int threads;
+	
+	@Param({ "8", "64" })
+	public int depth;
+	
+	@Param({ "0.0", "0.1" })
+	public double mutationMix;
+	
+	private EventLog eventLog;
+	private Thread thread;
+	private List<Object> list;
+	private List<Event> traceEvents;
+	
+	private final int[] randomIndices = new int[RANDOM_INDICES];
+	private int nextRandomIndex;
+	private int stepIndex;
+	
+	@Setup(Level.Trial)
+	public void createTrace() {
+		SyntheticTrace trace = new SyntheticTrace(events, threads, depth, mutationMix, 0);
+		
+		traceEvents = trace.getEvents();
+		eventLog = new EventLog(traceEvents);
+		thread = trace.getThreads().get(0);
+		list = trace.getList(0);
+		eventLog.setThread(thread);
+		
+		Random random = new Random(1);
+		for(int i = 0; i < randomIndices.length; i++) {
+			randomIndices[i] = random.nextInt(traceEvents.size());
+		}
+	}
+	
+	/**
+	 * Moves the event log to the next of a fixed sequence of random indices.
+	 */
+	private void moveToRandomIndex() {
+		eventLog.setIndex(randomIndices[nextRandomIndex]);
+		nextRandomIndex = (nextRandomIndex + 1) % randomIndices.length;
+	}
+	
+	@Benchmark
+	public List<CallStackNode> getCallStack() {
+		moveToRandomIndex();
+		return eventLog.getCallStack();
+	}
+	
+	@Benchmark
+	public Map<String, Object> getLocalVariables() {
+		moveToRandomIndex();
+		return eventLog.getLocalVariables();
+	}
+	
+	@Benchmark
+	public Optional<Object> getObjectSnapshot() {
+		moveToRandomIndex();
+		return eventLog.getObjectSnapshot(list, traceEvents);
+	}
+	
+	@Benchmark
+	public List<Thread> getThreads() {
+		moveToRandomIndex();
+		return eventLog.getThreads();
+	}
+	
+	@Benchmark
+	public int getLastIndex() {
+		moveToRandomIndex();
+		return eventLog.getLastIndex(thread);
+	}
+	
+	/**
+	 * Steps forward one event, and reads the line and locals as the views do after each step.
+	 */
+	@Benchmark
+	public Map<String, Object> step() {
+		stepIndex = (stepIndex + 1) % traceEvents.size();
+		eventLog.setIndex(stepIndex);
+		eventLog.getCurrentLineNumber();
+		return eventLog.getLocalVariables();
+	}
+}
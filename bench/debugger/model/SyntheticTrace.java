@@ -0,0 +1,143 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.ExitWithValueEvent;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.ReturnValueEvent;
+import debugger.event.Events.ReturnedValueEvent;
+import debugger.event.Events.SetLocalNameEvent;
+import debugger.event.Events.StoreEvent;
+import debugger.event.ListSnapshotCreator.ListSnapshotEvent;
+import debugger.util.IntList;
+
+/**
+ * Generates a trace of events as if logged by a number of threads running recursive methods,
+ * without running any instrumented code. Each thread calls and returns from methods at random
+ * up to a maximum depth, stores to locals, and mutates its own list with a given probability.
+ * The threads are interleaved in short runs of events. Each invocation gets a method index of its
+ * own, as Session.nextMethodIndex gives it, and the events of an invocation carry that index.
+ */
+public class SyntheticTrace {
+	private static final String CLASS_NAME = "synthetic/Workload";
+	private static final String DESCRIPTOR = "(I)I";
+	private static final int RUN_LENGTH = 64;
+	private static final double CALL_PROBABILITY = 0.1;
+	
+	/**
+	 * The state of a thread between runs of events, with the method indexes of the invocations
+	 * that haven't returned, innermost last.
+	 */
+	private static class ThreadState {
+		private final Thread thread;
+		private final List<Object> list = new ArrayList<>();
+		private final IntList methodIndexes = new IntList();
+		private int listSize;
+		
+		public ThreadState(Thread thread) {
+			this.thread = thread;
+		}
+	}
+	
+	private final List<Event> events;
+	private final List<Thread> threads = new ArrayList<>();
+	private final List<List<Object>> lists = new ArrayList<>();
+	
+	private final Random random;
+	private final int maxDepth;
+	private final double mutationMix;
+	private int nextMethodIndex = 1;
+	
+	/**
+	 * Generates a trace of about the given number of events.
+	 */
+	public SyntheticTrace(int eventCount, int threadCount, int maxDepth, double mutationMix, long seed) {
+		this.events = new ArrayList<>(eventCount + RUN_LENGTH * 4);
+		this.random = new Random(seed);
+		this.maxDepth = maxDepth;
+		this.mutationMix = mutationMix;
+		
+		List<ThreadState> states = new ArrayList<>();
+		for(int i = 0; i < threadCount; i++) {
+			ThreadState state = new ThreadState(new Thread("worker-" + i));
+			states.add(state);
+			threads.add(state.thread);
+			lists.add(state.list);
+		}
+		
+		while(events.size() < eventCount) {
+			ThreadState state = states.get(random.nextInt(threadCount));
+			int end = Math.min(events.size() + RUN_LENGTH, eventCount);
+			while(events.size() < end) {
+				addEvents(state);
+			}
+		}
+	}
+	
+	private void addEvents(ThreadState state) {
+		Thread thread = state.thread;
+		int line = 10 + random.nextInt(20);
+		double r = random.nextDouble();
+		int depth = state.methodIndexes.size();
+		
+		if(depth == 0 || (r < CALL_PROBABILITY && depth < maxDepth)) {
+			Object[] args = { depth };
+			int methodIndex = nextMethodIndex++;
+			if(depth > 0) {
+				events.add(new InvokeStaticMethodEvent(CLASS_NAME, "f", DESCRIPTOR, args, line, thread, state.methodIndexes.getLast()));
+			}
+			events.add(new EnterMethodEvent(CLASS_NAME, "f", DESCRIPTOR, args, line, thread, methodIndex));
+			events.add(new SetLocalNameEvent("n", 0, line, thread, methodIndex));
+			events.add(new SetLocalNameEvent("x", 1, line, thread, methodIndex));
+			if(depth == 0) {
+				events.add(new ListSnapshotEvent(state.list, line, thread, methodIndex));
+			}
+			state.methodIndexes.add(methodIndex);
+		} else if(r < CALL_PROBABILITY * 2 && depth > 1) {
+			int methodIndex = state.methodIndexes.removeLast();
+			events.add(new ReturnValueEvent(depth - 1, line, thread, methodIndex));
+			events.add(new ExitWithValueEvent(depth - 1, line, thread, methodIndex));
+			events.add(new ReturnedValueEvent(depth - 1, line, thread, state.methodIndexes.getLast()));
+		} else if(r < CALL_PROBABILITY * 2 + mutationMix) {
+			addMutation(state, line);
+		} else {
+			events.add(new StoreEvent(1, random.nextInt(100), line, thread, state.methodIndexes.getLast()));
+		}
+	}
+	
+	/**
+	 * Adds to or removes from the list of a thread, keeping it small.
+	 */
+	private void addMutation(ThreadState state, int line) {
+		int methodIndex = state.methodIndexes.getLast();
+		if(state.listSize > 0 && random.nextBoolean()) {
+			events.add(new InvokeMethodEvent(state.list, "remove", "(I)Ljava/lang/Object;", new Object[] { 0 }, line, state.thread, methodIndex));
+			events.add(new ReturnedValueEvent(0, line, state.thread, methodIndex));
+			state.listSize--;
+		} else {
+			events.add(new InvokeMethodEvent(state.list, "add", "(Ljava/lang/Object;)Z", new Object[] { state.listSize }, line, state.thread, methodIndex));
+			events.add(new ReturnedValueEvent(true, line, state.thread, methodIndex));
+			state.listSize++;
+		}
+	}
+	
+	public List<Event> getEvents() {
+		return events;
+	}
+	
+	public List<Thread> getThreads() {
+		return threads;
+	}
+	
+	/**
+	 * Returns the list mutated by a thread, by the index of the thread.
+	 */
+	public List<Object> getList(int thread) {
+		return lists.get(thread);
+	}
+}
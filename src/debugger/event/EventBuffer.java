@@ -0,0 +1,232 @@
+package debugger.event;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import debugger.event.Events.Event;
+
+/**
+ * An append-only list of events, stored in fixed size chunks so that adding an event never
+ * copies the existing ones. Events below the published size can be read from any thread while
+ * new events are still being added.
+ * <p>
+ * Adding an event doesn't take a lock. Each writer reserves a slot with an atomic increment,
+ * stores its event, and then advances the published size past every stored event. A writer that
+ * finds an earlier slot still being stored leaves publishing to the writer of that slot, so
+ * writers never wait for each other. Only allocating a new chunk, once every CHUNK_SIZE events,
+ * takes a lock.
+ * <p>
+ * The buffer can optionally stamp events with System.nanoTime. To keep the overhead low, the
+ * clock is read once per batch of events, and each event gets the stamp of its batch. With
+ * several writers, an event may get the stamp of the batch before its own.
+ */
+public class EventBuffer {
+	private static final int CHUNK_BITS = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final VarHandle EVENTS = MethodHandles.arrayElementVarHandle(Event[].class);
+
+	/**
+	 * Reads events from the buffer in the order they were added.
+	 */
+	public class Cursor {
+		private int position;
+
+		/**
+		 * Returns the events added since the last call, and moves the cursor past them.
+		 */
+		public List<Event> next() {
+			int end = size();
+			List<Event> events = asList().subList(position, end);
+			position = end;
+			return events;
+		}
+
+		/**
+		 * Returns the number of events that have been read by this cursor.
+		 */
+		public int getPosition() {
+			return position;
+		}
+	}
+
+	private class EventList extends AbstractList<Event> implements RandomAccess {
+		@Override
+		public Event get(int index) {
+			return EventBuffer.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return EventBuffer.this.size();
+		}
+	}
+
+	private volatile Event[][] chunks = new Event[16][];
+	private volatile long[][] timeChunks = new long[16][];
+	private final AtomicInteger reserved = new AtomicInteger();
+	private final AtomicInteger published = new AtomicInteger();
+	private volatile int timestampBatch;
+	private volatile long batchNanoTime;
+
+	/**
+	 * Appends an event, publishing it to readers once it and every event before it are stored.
+	 */
+	public void add(Event event) {
+		int index = reserved.getAndIncrement();
+		Event[] chunk = getChunk(index >>> CHUNK_BITS);
+
+		int timestampBatch = this.timestampBatch;
+		if(timestampBatch > 0) {
+			addTime(index, timestampBatch);
+		}
+
+		EVENTS.setVolatile(chunk, index & CHUNK_MASK, event);
+		publish();
+	}
+
+	/**
+	 * Advances the published size past every stored event, stopping at a slot that is still
+	 * being stored. The slot is written before its writer calls publish, so the writer will
+	 * publish it if this call stops at it.
+	 */
+	private void publish() {
+		while(true) {
+			int size = published.get();
+			if(size == reserved.get()) {
+				return;
+			}
+			Event[] chunk = getChunk(size >>> CHUNK_BITS);
+			if(EVENTS.getVolatile(chunk, size & CHUNK_MASK) == null) {
+				return;
+			}
+			published.compareAndSet(size, size + 1);
+		}
+	}
+
+	private Event[] getChunk(int chunk) {
+		Event[][] chunks = this.chunks;
+		if(chunk < chunks.length && chunks[chunk] != null) {
+			return chunks[chunk];
+		}
+		return allocateChunk(chunk);
+	}
+
+	private synchronized Event[] allocateChunk(int chunk) {
+		Event[][] chunks = this.chunks;
+		if(chunk >= chunks.length) {
+			chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, chunk + 1));
+		}
+		if(chunks[chunk] == null) {
+			chunks[chunk] = new Event[CHUNK_SIZE];
+		}
+		this.chunks = chunks;
+		return chunks[chunk];
+	}
+
+	private void addTime(int index, int timestampBatch) {
+		long nanoTime = batchNanoTime;
+		if(index % timestampBatch == 0 || nanoTime == 0) {
+			nanoTime = System.nanoTime();
+			batchNanoTime = nanoTime;
+		}
+		getTimeChunk(index >>> CHUNK_BITS)[index & CHUNK_MASK] = nanoTime;
+	}
+
+	private long[] getTimeChunk(int chunk) {
+		long[][] timeChunks = this.timeChunks;
+		if(chunk < timeChunks.length && timeChunks[chunk] != null) {
+			return timeChunks[chunk];
+		}
+		return allocateTimeChunk(chunk);
+	}
+
+	private synchronized long[] allocateTimeChunk(int chunk) {
+		long[][] timeChunks = this.timeChunks;
+		if(chunk >= timeChunks.length) {
+			timeChunks = Arrays.copyOf(timeChunks, Math.max(timeChunks.length * 2, chunk + 1));
+		}
+		if(timeChunks[chunk] == null) {
+			long[] times = new long[CHUNK_SIZE];
+			Arrays.fill(times, -1);
+			timeChunks[chunk] = times;
+		}
+		this.timeChunks = timeChunks;
+		return timeChunks[chunk];
+	}
+
+	/**
+	 * Sets the number of events stamped with each read of the clock, or 0 to stop stamping
+	 * events. A batch of 1 stamps every event with its own time.
+	 */
+	public void setTimestampBatch(int timestampBatch) {
+		if(timestampBatch < 0) {
+			throw new IllegalArgumentException("Invalid timestamp batch: " + timestampBatch);
+		}
+		this.timestampBatch = timestampBatch;
+	}
+
+	/**
+	 * Returns the System.nanoTime stamp of an event, or -1 if it wasn't stamped.
+	 */
+	public long getNanoTime(int index) {
+		int size = size();
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		long[][] timeChunks = this.timeChunks;
+		int chunk = index >>> CHUNK_BITS;
+		if(chunk >= timeChunks.length || timeChunks[chunk] == null) {
+			return -1;
+		}
+		return timeChunks[chunk][index & CHUNK_MASK];
+	}
+
+	public Event get(int index) {
+		int size = size();
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+	}
+
+	/**
+	 * Returns the number of published events.
+	 */
+	public int size() {
+		return published.get();
+	}
+
+	/**
+	 * Returns the number of events that can be stored in the allocated chunks.
+	 */
+	public int getCapacity() {
+		Event[][] chunks = this.chunks;
+		int capacity = 0;
+		for(Event[] chunk:chunks) {
+			if(chunk != null) {
+				capacity += CHUNK_SIZE;
+			}
+		}
+		return capacity;
+	}
+
+	/**
+	 * Returns a live read-only view of this buffer, that grows as events are added.
+	 */
+	public List<Event> asList() {
+		return new EventList();
+	}
+
+	/**
+	 * Returns a new cursor positioned at the start of the buffer.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+}
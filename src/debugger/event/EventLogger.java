@@ -2,137 +2,438 @@ package debugger.event;
 
 import static java.util.stream.Collectors.toList;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import debugger.event.Events.Event;
+import debugger.event.Events.SyncEvent;
+import debugger.metrics.RecorderMetrics;
 
 public class EventLogger {
 	public static final List<SnapshotCreator> snapshotCreators = List.of(new ListSnapshotCreator());
  	
-	private static final AtomicInteger methodIndex = new AtomicInteger();
-	private static final Queue<Event> events = new ConcurrentLinkedQueue<>();
-	private static final Set<Object> seenObjects = new HashSet<>();
+	private static final Session NO_SESSION = new Session(0);
+	private static final SyncEvent.Type[] syncTypes = SyncEvent.Type.values();
+	private static final AtomicLong syncSequence = new AtomicLong();
+	
+	private static volatile Session session;
+	private static volatile Sampler sampler;
+	private static volatile FlightRecorder flightRecorder;
+	private static volatile int timestampBatch;
+	private static int sessionCount;
+	
+	static {
+		startSession();
+		RecorderMetrics.getInstance().setBufferGauges(() -> getEventBuffer().size(), () -> getEventBuffer().getCapacity());
+	}
 	
 	public static List<String> getLog() {
-		return events.stream().map(Event::toString).collect(toList());
+		return getEventBuffer().asList().stream().map(Event::toString).collect(toList());
 	}
 	
 	public static List<Event> getEvents() {
-		return new ArrayList<>(events);
+		return getSession().getEvents();
+	}
+	
+	/**
+	 * Returns the buffer that events are currently being recorded to. The buffer can be
+	 * read while the program is still running, and is replaced by a new one on clear.
+	 */
+	public static EventBuffer getEventBuffer() {
+		return getSession().getEventBuffer();
+	}
+	
+	/**
+	 * Returns the current session, or an empty stopped session if none is being recorded.
+	 */
+	public static Session getSession() {
+		Session session = EventLogger.session;
+		return (session == null) ? NO_SESSION : session;
+	}
+	
+	/**
+	 * Stops the current session and starts recording a new one.
+	 */
+	public static synchronized Session startSession() {
+		stopSession();
+		Session session = new Session(++sessionCount);
+		session.getEventBuffer().setTimestampBatch(timestampBatch);
+		EventLogger.session = session;
+		return session;
+	}
+	
+	/**
+	 * Stops recording, and returns the stopped session once every event being added to it has
+	 * been added, or null if no session was being recorded.
+	 */
+	public static synchronized Session stopSession() {
+		Session session = EventLogger.session;
+		EventLogger.session = null;
+		if(session != null) {
+			session.stop();
+		}
+		return session;
+	}
+	
+	/**
+	 * Sets the number of events stamped with each read of the clock, for the current session and
+	 * the sessions started later, or 0 to stop stamping events.
+	 */
+	public static synchronized void setTimestampBatch(int timestampBatch) {
+		getEventBuffer().setTimestampBatch(timestampBatch);
+		EventLogger.timestampBatch = timestampBatch;
 	}
 	
 	public static void clear() {
-		Events.clear();
-		events.clear();
-		methodIndex.set(0);
-		seenObjects.clear();
+		startSession();
+	}
+	
+	/**
+	 * Registers as a writer of the current session, returning it, or null if no session is
+	 * being recorded. If the session is replaced while registering, the writer moves to the
+	 * new session, so every event lands in the session that was current when it was added.
+	 */
+	private static Session beginWrite() {
+		while(true) {
+			Session session = EventLogger.session;
+			if(session == null) {
+				return null;
+			}
+			session.beginWrite();
+			if(session == EventLogger.session) {
+				return session;
+			}
+			session.endWrite();
+		}
+	}
+	
+	private static void record(Session session, Event event) {
+		RecorderMetrics metrics = RecorderMetrics.getInstance();
+		FlightRecorder flightRecorder = EventLogger.flightRecorder;
+		if(flightRecorder != null) {
+			flightRecorder.add(event);
+		} else if(metrics.sampleLatency()) {
+			long start = System.nanoTime();
+			session.getEventBuffer().add(event);
+			metrics.captureLatency(System.nanoTime() - start);
+		} else {
+			session.getEventBuffer().add(event);
+		}
+		metrics.eventRecorded(event.kind);
+	}
+	
+	/**
+	 * Sets the sampler that decides which invocations record their data events, or null to
+	 * record every event.
+	 */
+	public static void setSampler(Sampler sampler) {
+		EventLogger.sampler = sampler;
+	}
+	
+	public static Sampler getSampler() {
+		return sampler;
+	}
+	
+	/**
+	 * Sets the flight recorder that keeps only the most recent events of each thread instead of
+	 * the event buffer, or null to record every event to the event buffer.
+	 */
+	public static void setFlightRecorder(FlightRecorder flightRecorder) {
+		EventLogger.flightRecorder = flightRecorder;
+	}
+	
+	public static FlightRecorder getFlightRecorder() {
+		return flightRecorder;
+	}
+	
+	private static boolean recordData(int methodIndex) {
+		Sampler sampler = EventLogger.sampler;
+		return sampler == null || sampler.recordData(methodIndex);
 	}
 	
 	public static int nextMethodIndex() {
-		return methodIndex.incrementAndGet();
+		return getSession().nextMethodIndex();
 	}
 
 	public static void putField(Object object, String name, Object value, int lineNumber, Thread thread, int methodIndex) {
-		checkObjectSnapshot(value, lineNumber, thread, methodIndex);
-		events.add(new Events.PutFieldEvent(object, name, value, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			if(!recordData(methodIndex)) {
+				return;
+			}
+			checkObjectSnapshot(session, value, lineNumber, thread, methodIndex);
+			record(session, new Events.PutFieldEvent(object, name, value, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 
 	public static void store(int varIndex, Object value, int lineNumber, Thread thread, int methodIndex) {
-		checkObjectSnapshot(value, lineNumber, thread, methodIndex);
-		events.add(new Events.StoreEvent(varIndex, value, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			if(!recordData(methodIndex)) {
+				return;
+			}
+			checkObjectSnapshot(session, value, lineNumber, thread, methodIndex);
+			record(session, new Events.StoreEvent(varIndex, value, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void storeArray(Object array, int index, Object value, int lineNumber, Thread thread, int methodIndex) {
-		checkObjectSnapshot(value, lineNumber, thread, methodIndex);
-		events.add(new Events.StoreArrayEvent(array, index, value, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			if(!recordData(methodIndex)) {
+				return;
+			}
+			checkObjectSnapshot(session, value, lineNumber, thread, methodIndex);
+			record(session, new Events.StoreArrayEvent(array, index, value, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 
 	public static void invokeMethod(Object object, String className, Object[] args, String name, String descriptor, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.InvokeMethodEvent(object, name, descriptor, args, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.InvokeMethodEvent(object, name, descriptor, args, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void invokeSpecialMethod(Object object, String className, Object[] args, String name, String descriptor, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.InvokeSpecialMethodEvent(object, className, name, descriptor, args, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.InvokeSpecialMethodEvent(object, className, name, descriptor, args, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void invokeStaticMethod(String className, Object[] args, String name, String descriptor, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.InvokeStaticMethodEvent(className, name, descriptor, args, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.InvokeStaticMethodEvent(className, name, descriptor, args, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void invokeMethodAfter(Object object, String className, Object[] args, String name, String descriptor, int lineNumber, Thread thread, int methodIndex) {
-		for(SnapshotCreator snapshotCreator:snapshotCreators) {
-			events.addAll(snapshotCreator.createSnapshotEvent(new Events.InvokeMethodEvent(object, name, descriptor, args, lineNumber, thread, methodIndex)));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			for(SnapshotCreator snapshotCreator:snapshotCreators) {
+				snapshotCreator.createSnapshotEvent(new Events.InvokeMethodEvent(object, name, descriptor, args, lineNumber, thread, methodIndex)).forEach(event -> record(session, event));
+			}
+		} finally {
+			session.endWrite();
 		}
 	}
 	
 	public static void invokeSpecialMethodAfter(Object object, String className, Object[] args, String name, String descriptor, int lineNumber, Thread thread, int methodIndex) {
-		for(SnapshotCreator snapshotCreator:snapshotCreators) {
-			events.addAll(snapshotCreator.createSnapshotEvent(new Events.InvokeSpecialMethodEvent(object, className, name, descriptor, args, lineNumber, thread, methodIndex)));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			for(SnapshotCreator snapshotCreator:snapshotCreators) {
+				snapshotCreator.createSnapshotEvent(new Events.InvokeSpecialMethodEvent(object, className, name, descriptor, args, lineNumber, thread, methodIndex)).forEach(event -> record(session, event));
+			}
+		} finally {
+			session.endWrite();
 		}
 	}
 	
 	public static void invokeStaticMethodAfter(String className, Object[] args, String name, String descriptor, int lineNumber, Thread thread, int methodIndex) {
-		for(SnapshotCreator snapshotCreator:snapshotCreators) {
-			events.addAll(snapshotCreator.createSnapshotEvent(new Events.InvokeStaticMethodEvent(className, name, descriptor, args, lineNumber, thread, methodIndex)));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			for(SnapshotCreator snapshotCreator:snapshotCreators) {
+				snapshotCreator.createSnapshotEvent(new Events.InvokeStaticMethodEvent(className, name, descriptor, args, lineNumber, thread, methodIndex)).forEach(event -> record(session, event));
+			}
+		} finally {
+			session.endWrite();
 		}
 	}
 	
-	private static void checkObjectSnapshot(Object value, int lineNumber, Thread thread, int methodIndex) {
-		if(!seenObjects.contains(value)) {
-			seenObjects.add(value);
-			for(SnapshotCreator snapshotCreator:snapshotCreators) {
-				if(snapshotCreator.isCompatibleType(value)) {
-					events.add(snapshotCreator.createSnapshotEvent(value, lineNumber, thread, methodIndex));
-				}
+	/**
+	 * Records a snapshot of a value the first time it is seen in the session. Only values that
+	 * a snapshot creator is compatible with are remembered.
+	 */
+	private static void checkObjectSnapshot(Session session, Object value, int lineNumber, Thread thread, int methodIndex) {
+		for(SnapshotCreator snapshotCreator:snapshotCreators) {
+			if(snapshotCreator.isCompatibleType(value) && session.markSeen(value)) {
+				record(session, snapshotCreator.createSnapshotEvent(value, lineNumber, thread, methodIndex));
 			}
 		}
 	}
 	
 	public static void returnValue(Object value, int lineNumber, Thread thread, int methodIndex) {
-		checkObjectSnapshot(value, lineNumber, thread, methodIndex);
-		events.add(new Events.ReturnValueEvent(value, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			checkObjectSnapshot(session, value, lineNumber, thread, methodIndex);
+			record(session, new Events.ReturnValueEvent(value, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void returnedValue(Object value, int lineNumber, Thread thread, int methodIndex) {
-		checkObjectSnapshot(value, lineNumber, thread, methodIndex);
-		events.add(new Events.ReturnedValueEvent(value, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			checkObjectSnapshot(session, value, lineNumber, thread, methodIndex);
+			record(session, new Events.ReturnedValueEvent(value, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void throwException(Throwable t, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.ThrowExceptionEvent(t, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.ThrowExceptionEvent(t, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void catchException(Throwable t, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.CatchExceptionEvent(t, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.CatchExceptionEvent(t, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 
 	public static void setThis(Object object, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.SetThisEvent(object, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.SetThisEvent(object, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void enterMethod(String className, String methodName, String descriptor, Object[] args, int lineNumber, Thread thread, int methodIndex) {
-		for(Object arg:args) {
-			checkObjectSnapshot(arg, lineNumber, thread, methodIndex);
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			for(Object arg:args) {
+				checkObjectSnapshot(session, arg, lineNumber, thread, methodIndex);
+			}
+			record(session, new Events.EnterMethodEvent(className, methodName, descriptor, args, lineNumber, thread, methodIndex));
+		
+			Sampler sampler = EventLogger.sampler;
+			if(sampler != null) {
+				sampler.enter(className, methodName, descriptor, methodIndex);
+			}
+		} finally {
+			session.endWrite();
 		}
-		events.add(new Events.EnterMethodEvent(className, methodName, descriptor, args, lineNumber, thread, methodIndex));
 	}
 	
 	public static void exitWithException(Throwable t, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.ExitWithExceptionEvent(t, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.ExitWithExceptionEvent(t, lineNumber, thread, methodIndex));
+			exitSampler(methodIndex);
+		} finally {
+			session.endWrite();
+		}
 	}
 	
 	public static void exitWithValue(Object value, int lineNumber, Thread thread, int methodIndex) {
-		checkObjectSnapshot(value, lineNumber, thread, methodIndex);
-		events.add(new Events.ExitWithValueEvent(value, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			checkObjectSnapshot(session, value, lineNumber, thread, methodIndex);
+			record(session, new Events.ExitWithValueEvent(value, lineNumber, thread, methodIndex));
+			exitSampler(methodIndex);
+		} finally {
+			session.endWrite();
+		}
+	}
+	
+	private static void exitSampler(int methodIndex) {
+		Sampler sampler = EventLogger.sampler;
+		if(sampler != null) {
+			sampler.exit(methodIndex);
+		}
 	}
 	
 	public static void setLocalName(String name, int index, int lineNumber, Thread thread, int methodIndex) {
-		events.add(new Events.SetLocalNameEvent(name, index, lineNumber, thread, methodIndex));
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new Events.SetLocalNameEvent(name, index, lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
+	}
+	
+	/**
+	 * Logs a synchronization action, where type is the ordinal of a SyncEvent.Type, and name is
+	 * the field or method name for volatile and java.util.concurrent actions.
+	 */
+	public static void sync(Object object, String name, int type, int lineNumber, Thread thread, int methodIndex) {
+		Session session = beginWrite();
+		if(session == null) {
+			return;
+		}
+		try {
+			record(session, new SyncEvent(syncTypes[type], object, name, syncSequence.incrementAndGet(), System.nanoTime(), lineNumber, thread, methodIndex));
+		} finally {
+			session.endWrite();
+		}
 	}
 }
\ No newline at end of file
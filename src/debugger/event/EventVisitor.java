@@ -0,0 +1,45 @@
+package debugger.event;
+
+import debugger.event.Events.CatchExceptionEvent;
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.ExitWithExceptionEvent;
+import debugger.event.Events.ExitWithValueEvent;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeSpecialMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.PutFieldEvent;
+import debugger.event.Events.ReturnValueEvent;
+import debugger.event.Events.ReturnedValueEvent;
+import debugger.event.Events.SetLocalNameEvent;
+import debugger.event.Events.SetThisEvent;
+import debugger.event.Events.StoreArrayEvent;
+import debugger.event.Events.StoreEvent;
+import debugger.event.Events.SyncEvent;
+import debugger.event.Events.ThrowExceptionEvent;
+
+/**
+ * Visits events by type. Each method defaults to visitDefault, so implementations only
+ * need to override the events they are interested in.
+ */
+public interface EventVisitor<T> {
+	public default T visitDefault(Event event) { return null; }
+	
+	public default T visitPutField(PutFieldEvent event) { return visitDefault(event); }
+	public default T visitStore(StoreEvent event) { return visitDefault(event); }
+	public default T visitStoreArray(StoreArrayEvent event) { return visitDefault(event); }
+	public default T visitInvokeMethod(InvokeMethodEvent event) { return visitDefault(event); }
+	public default T visitInvokeSpecialMethod(InvokeSpecialMethodEvent event) { return visitDefault(event); }
+	public default T visitInvokeStaticMethod(InvokeStaticMethodEvent event) { return visitDefault(event); }
+	public default T visitReturnValue(ReturnValueEvent event) { return visitDefault(event); }
+	public default T visitReturnedValue(ReturnedValueEvent event) { return visitDefault(event); }
+	public default T visitThrowException(ThrowExceptionEvent event) { return visitDefault(event); }
+	public default T visitCatchException(CatchExceptionEvent event) { return visitDefault(event); }
+	public default T visitSetThis(SetThisEvent event) { return visitDefault(event); }
+	public default T visitEnterMethod(EnterMethodEvent event) { return visitDefault(event); }
+	public default T visitExitWithException(ExitWithExceptionEvent event) { return visitDefault(event); }
+	public default T visitExitWithValue(ExitWithValueEvent event) { return visitDefault(event); }
+	public default T visitSetLocalName(SetLocalNameEvent event) { return visitDefault(event); }
+	public default T visitSync(SyncEvent event) { return visitDefault(event); }
+	public default T visitSnapshot(SnapshotEvent event) { return visitDefault((Event) event); }
+}
@@ -1,42 +1,63 @@
 package debugger.event;
 
 import java.util.Arrays;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class Events {
-	private static final Map<Object, Integer> objects = new ConcurrentHashMap<>();
-	private static final Map<Class<?>, Integer> classes = new ConcurrentHashMap<>();
-	
-	public static void clear() {
-		objects.clear();
-		classes.clear();
+	/**
+	 * Returns the name of an object in the current session, such as "ArrayList-2". Each session
+	 * numbers its objects separately, so the names in a stopped session don't change when later
+	 * sessions are started.
+	 */
+	public static String getObjectName(Object object) {
+		return EventLogger.getSession().getObjectName(object);
 	}
 	
-	public static String getObjectName(Object object) {
-		if(object == null) {
-			return "null";
-		}
-		
-		Integer id = objects.get(object);
-		if(id == null) {
-			id = classes.merge(object.getClass(), 1, Integer::sum);
-			objects.put(object, id);
-		}
-		return object.getClass().getSimpleName() + "-" + id;
+	/**
+	 * Tags each event with its concrete type, so that loops over the event list can switch on
+	 * the kind instead of testing a chain of instanceof checks.
+	 */
+	public enum Kind {
+		PUT_FIELD,
+		STORE,
+		STORE_ARRAY,
+		INVOKE_METHOD,
+		INVOKE_SPECIAL_METHOD,
+		INVOKE_STATIC_METHOD,
+		RETURN_VALUE,
+		RETURNED_VALUE,
+		THROW_EXCEPTION,
+		CATCH_EXCEPTION,
+		SET_THIS,
+		ENTER_METHOD,
+		EXIT_WITH_EXCEPTION,
+		EXIT_WITH_VALUE,
+		SET_LOCAL_NAME,
+		SYNC,
+		SNAPSHOT
 	}
 	
 	public static abstract class Event {
+		public final Kind kind;
 		public final int lineNumber;
 		public final Thread thread;
 		public final int methodIndex;
 		
-		public Event(int lineNumber, Thread thread, int methodIndex) {
+		public Event(Kind kind, int lineNumber, Thread thread, int methodIndex) {
+			this.kind = kind;
 			this.lineNumber = lineNumber;
 			this.thread = thread;
 			this.methodIndex = methodIndex;
 		}
 		
+		/**
+		 * Calls the visitor method for the type of this event, and returns its result.
+		 */
+		public abstract <T> T accept(EventVisitor<T> visitor);
+		
+		public Kind getKind() {
+			return kind;
+		}
+		
 		public int getLineNumber() {
 			return lineNumber;
 		}
@@ -56,12 +77,17 @@ public class Events {
 		public final Object value;
 		
 		public PutFieldEvent(Object object, String name, Object value, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.PUT_FIELD, lineNumber, thread, methodIndex);
 			this.object = object;
 			this.name = name;
 			this.value = value;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitPutField(this);
+		}
+		
 		public String toString() {
 			return "PUT FIELD: " + getObjectName(object) + ", " + name + ", " + value;
 		}
@@ -72,11 +98,16 @@ public class Events {
 		public final Object value;
 		
 		public StoreEvent(int varIndex, Object value, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.STORE, lineNumber, thread, methodIndex);
 			this.varIndex = varIndex;
 			this.value = value;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitStore(this);
+		}
+		
 		public String toString() {
 			return "STORE: " + varIndex + ", " + value;
 		}
@@ -88,12 +119,17 @@ public class Events {
 		public final Object value;
 		
 		public StoreArrayEvent(Object array, int index, Object value, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.STORE_ARRAY, lineNumber, thread, methodIndex);
 			this.array = array;
 			this.index = index;
 			this.value = value;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitStoreArray(this);
+		}
+		
 		public String toString() {
 			return "STORE ARRAY: " + getObjectName(array) + ", " + index + ", " + value;
 		}
@@ -106,13 +142,18 @@ public class Events {
 		public final Object[] args;
 		
 		public InvokeMethodEvent(Object object, String name, String descriptor, Object[] args, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.INVOKE_METHOD, lineNumber, thread, methodIndex);
 			this.object = object;
 			this.name = name;
 			this.descriptor = descriptor;
 			this.args = args;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitInvokeMethod(this);
+		}
+		
 		public String toString() {
 			return "INVOKE: " + getObjectName(object) + ", " + name + ", " + descriptor + ", " + Arrays.toString(args);
 		}
@@ -126,7 +167,7 @@ public class Events {
 		public final Object[] args;
 		
 		public InvokeSpecialMethodEvent(Object object, String className, String name, String descriptor, Object[] args, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.INVOKE_SPECIAL_METHOD, lineNumber, thread, methodIndex);
 			this.object = object;
 			this.className = className;
 			this.name = name;
@@ -134,6 +175,11 @@ public class Events {
 			this.args = args;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitInvokeSpecialMethod(this);
+		}
+		
 		public String toString() {
 			return "INVOKE SPECIAL: " + getObjectName(object) + ", " + className + ", " + name + ", " + descriptor + ", " + Arrays.toString(args);
 		}
@@ -146,13 +192,18 @@ public class Events {
 		public final Object[] args;
 		
 		public InvokeStaticMethodEvent(String className, String name, String descriptor, Object[] args, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.INVOKE_STATIC_METHOD, lineNumber, thread, methodIndex);
 			this.className = className;
 			this.name = name;
 			this.descriptor = descriptor;
 			this.args = args;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitInvokeStaticMethod(this);
+		}
+		
 		public String toString() {
 			return "INVOKE STATIC: " + className + ", " + name + ", " + descriptor + ", " + Arrays.toString(args);
 		}
@@ -162,10 +213,15 @@ public class Events {
 		public final Object value;
 		
 		public ReturnValueEvent(Object value, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.RETURN_VALUE, lineNumber, thread, methodIndex);
 			this.value = value;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitReturnValue(this);
+		}
+		
 		public String toString() {
 			return "RETURN: " + value;
 		}
@@ -175,10 +231,15 @@ public class Events {
 		public final Object value;
 		
 		public ReturnedValueEvent(Object value, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.RETURNED_VALUE, lineNumber, thread, methodIndex);
 			this.value = value;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitReturnedValue(this);
+		}
+		
 		public String toString() {
 			return "RETURNED: " + value;
 		}
@@ -188,10 +249,15 @@ public class Events {
 		public final Throwable throwable;
 		
 		public ThrowExceptionEvent(Throwable throwable, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.THROW_EXCEPTION, lineNumber, thread, methodIndex);
 			this.throwable = throwable;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitThrowException(this);
+		}
+		
 		public String toString() {
 			return "THROW: " + throwable.getClass().getName() + ", " + throwable.getMessage();
 		}
@@ -201,10 +267,15 @@ public class Events {
 		public final Throwable throwable;
 		
 		public CatchExceptionEvent(Throwable throwable, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.CATCH_EXCEPTION, lineNumber, thread, methodIndex);
 			this.throwable = throwable;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitCatchException(this);
+		}
+		
 		public String toString() {
 			return "CATCH: " + throwable.getClass().getName() + ", " + throwable.getMessage();
 		}
@@ -214,10 +285,19 @@ public class Events {
 		private final Object object;
 
 		public SetThisEvent(Object object, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.SET_THIS, lineNumber, thread, methodIndex);
 			this.object = object;
 		}
 		
+		public Object getObject() {
+			return object;
+		}
+		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitSetThis(this);
+		}
+		
 		public String toString() {
 			return "SETTHIS: " + getObjectName(object);
 		}
@@ -230,13 +310,18 @@ public class Events {
 		public final Object[] args;
 
 		public EnterMethodEvent(String className, String name, String descriptor, Object[] args, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.ENTER_METHOD, lineNumber, thread, methodIndex);
 			this.className = className;
 			this.name = name;
 			this.descriptor = descriptor;
 			this.args = args;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitEnterMethod(this);
+		}
+		
 		public String toString() {
 			return "ENTER METHOD: " + className + ", " + name + ", " + descriptor + ", " + Arrays.asList(args);
 		}
@@ -246,10 +331,15 @@ public class Events {
 		public final Throwable throwable;
 		
 		public ExitWithExceptionEvent(Throwable throwable, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.EXIT_WITH_EXCEPTION, lineNumber, thread, methodIndex);
 			this.throwable = throwable;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitExitWithException(this);
+		}
+		
 		public String toString() {
 			return "EXIT EXCEPTION: " + throwable.getClass().getName() + ", " + throwable.getMessage();
 		}
@@ -259,10 +349,15 @@ public class Events {
 		public final Object value;
 		
 		public ExitWithValueEvent(Object value, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.EXIT_WITH_VALUE, lineNumber, thread, methodIndex);
 			this.value = value;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitExitWithValue(this);
+		}
+		
 		public String toString() {
 			return "EXIT VALUE: " + value;
 		}
@@ -273,13 +368,80 @@ public class Events {
 		public final int index;
 
 		public SetLocalNameEvent(String name, int index, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.SET_LOCAL_NAME, lineNumber, thread, methodIndex);
 			this.name = name;
 			this.index = index;
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitSetLocalName(this);
+		}
+		
 		public String toString() {
 			return "SET LOCAL NAME: " + name + ", " + index;
 		}
 	}
+	
+	/**
+	 * A synchronization action on an object, such as a monitor enter or a volatile write, stamped
+	 * from a global sequence and with the time it was logged. Releases are logged before the action
+	 * and acquires after it. The sequence is taken when the event is logged rather than atomically
+	 * with the action, so it only approximates the order of the actions themselves. A monitor
+	 * request is logged before waiting for a monitor, so the time until the monitor enter is the
+	 * time spent waiting.
+	 */
+	public static class SyncEvent extends Event {
+		public enum Type {
+			MONITOR_REQUEST(false, false),
+			MONITOR_ENTER(false, true),
+			MONITOR_EXIT(true, false),
+			THREAD_START(true, false),
+			THREAD_JOIN(false, true),
+			VOLATILE_READ(false, true),
+			VOLATILE_WRITE(true, false),
+			ACQUIRE(false, true),
+			RELEASE(true, false);
+			
+			private final boolean release;
+			private final boolean acquire;
+			
+			private Type(boolean release, boolean acquire) {
+				this.release = release;
+				this.acquire = acquire;
+			}
+			
+			public boolean isRelease() {
+				return release;
+			}
+			
+			public boolean isAcquire() {
+				return acquire;
+			}
+		}
+		
+		public final Type type;
+		public final Object object;
+		public final String name;
+		public final long sequence;
+		public final long nanoTime;
+		
+		public SyncEvent(Type type, Object object, String name, long sequence, long nanoTime, int lineNumber, Thread thread, int methodIndex) {
+			super(Kind.SYNC, lineNumber, thread, methodIndex);
+			this.type = type;
+			this.object = object;
+			this.name = name;
+			this.sequence = sequence;
+			this.nanoTime = nanoTime;
+		}
+		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitSync(this);
+		}
+		
+		public String toString() {
+			return "SYNC: " + type + ", " + getObjectName(object) + (name == null ? "" : ", " + name) + ", #" + sequence;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package debugger.event;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeSpecialMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.metrics.RecorderMetrics;
+
+/**
+ * Keeps only the most recent events of each thread, in a ring buffer limited by a number of
+ * events and an estimate of their size in bytes, and writes them to a trace when triggered. A
+ * dump is triggered when an exception leaves the outermost instrumented method of a thread,
+ * when a method chosen with dumpOnEnter is entered, or by calling dump.
+ * <p>
+ * Each ring is only written by its own thread, and is locked so that a dump from another
+ * thread sees a consistent copy. Events evicted from a ring are counted as dropped. A ring grows
+ * up to its limit as events are added, and the rings of threads that have terminated are removed
+ * after their events are dumped.
+ */
+public class FlightRecorder {
+	private static final int EVENT_BYTES = 48;
+	private static final int ARG_BYTES = 8;
+	private static final int INITIAL_RING_SIZE = 16;
+
+	private static class Ring {
+		private final Thread thread;
+		private final int maxEvents;
+		private Event[] events = new Event[0];
+		private int[] sizes = new int[0];
+		private int start;
+		private int size;
+		private long bytes;
+		private int depth;
+
+		public Ring(Thread thread, int maxEvents) {
+			this.thread = thread;
+			this.maxEvents = maxEvents;
+		}
+
+		private synchronized void add(Event event, int eventBytes, long maxBytes) {
+			if(size == events.length && size < maxEvents) {
+				grow();
+			}
+
+			int evicted = 0;
+			while(size > 0 && (size == events.length || bytes + eventBytes > maxBytes)) {
+				bytes -= sizes[start];
+				events[start] = null;
+				start = (start + 1) % events.length;
+				size--;
+				evicted++;
+			}
+			if(evicted > 0) {
+				RecorderMetrics.getInstance().eventsDropped(evicted);
+			}
+
+			int index = (start + size) % events.length;
+			events[index] = event;
+			sizes[index] = eventBytes;
+			bytes += eventBytes;
+			size++;
+		}
+
+		/**
+		 * Doubles the capacity of the ring, up to maxEvents, moving the events to the start.
+		 */
+		private void grow() {
+			int capacity = (int) Math.min(Math.max(events.length * 2L, INITIAL_RING_SIZE), maxEvents);
+			Event[] grownEvents = new Event[capacity];
+			int[] grownSizes = new int[capacity];
+			for(int i = 0; i < size; i++) {
+				grownEvents[i] = events[(start + i) % events.length];
+				grownSizes[i] = sizes[(start + i) % events.length];
+			}
+			events = grownEvents;
+			sizes = grownSizes;
+			start = 0;
+		}
+
+		private synchronized List<Event> getEvents() {
+			List<Event> copy = new ArrayList<>(size);
+			for(int i = 0; i < size; i++) {
+				copy.add(events[(start + i) % events.length]);
+			}
+			return copy;
+		}
+
+		private synchronized void clear() {
+			events = new Event[0];
+			sizes = new int[0];
+			start = 0;
+			size = 0;
+			bytes = 0;
+			depth = 0;
+		}
+	}
+
+	private final int maxEvents;
+	private final long maxBytes;
+	private final Path directory;
+
+	private final Map<Thread, Ring> rings = new ConcurrentHashMap<>();
+	private final ThreadLocal<Ring> ring = ThreadLocal.withInitial(this::createRing);
+	private final ThreadLocal<Boolean> dumping = ThreadLocal.withInitial(() -> false);
+	private final AtomicInteger dumpCount = new AtomicInteger();
+
+	private volatile boolean dumpOnException = true;
+	private volatile String dumpClassName;
+	private volatile String dumpMethodName;
+
+	/**
+	 * Creates a flight recorder that keeps at most maxEvents events, and about maxBytes bytes of
+	 * events, for each thread, and writes triggered dumps to files in a directory.
+	 */
+	public FlightRecorder(int maxEvents, long maxBytes, Path directory) {
+		if(maxEvents < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException("Invalid flight recorder limits");
+		}
+		this.maxEvents = maxEvents;
+		this.maxBytes = maxBytes;
+		this.directory = directory;
+	}
+
+	private Ring createRing() {
+		Ring ring = new Ring(Thread.currentThread(), maxEvents);
+		rings.put(ring.thread, ring);
+		return ring;
+	}
+
+	/**
+	 * Sets whether an exception leaving the outermost instrumented method of a thread triggers a dump.
+	 */
+	public void setDumpOnException(boolean dumpOnException) {
+		this.dumpOnException = dumpOnException;
+	}
+
+	/**
+	 * Triggers a dump whenever a method is entered, or no method if methodName is null. The class
+	 * name is the internal name, such as "debugger/model/QuickSort".
+	 */
+	public void dumpOnEnter(String className, String methodName) {
+		this.dumpClassName = className;
+		this.dumpMethodName = methodName;
+	}
+
+	/**
+	 * Returns the number of dumps written so far.
+	 */
+	public int getDumpCount() {
+		return dumpCount.get();
+	}
+
+	void add(Event event) {
+		Ring ring = this.ring.get();
+		ring.add(event, estimateBytes(event), maxBytes);
+
+		switch(event.kind) {
+		case ENTER_METHOD: {
+			ring.depth++;
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			String methodName = dumpMethodName;
+			if(methodName != null && methodName.equals(enterMethodEvent.name) && enterMethodEvent.className.equals(dumpClassName)) {
+				triggerDump("enter " + enterMethodEvent.className + "." + methodName + " in thread " + ring.thread.getName());
+			}
+			break;
+		}
+
+		case EXIT_WITH_VALUE:
+			ring.depth = Math.max(ring.depth - 1, 0);
+			break;
+
+		case EXIT_WITH_EXCEPTION:
+			ring.depth = Math.max(ring.depth - 1, 0);
+			if(ring.depth == 0 && dumpOnException) {
+				triggerDump("exception in thread " + ring.thread.getName());
+			}
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Estimates the memory used by an event, counting the event and its argument array but not
+	 * the values it refers to, which are shared with the program.
+	 */
+	private static int estimateBytes(Event event) {
+		switch(event.kind) {
+		case ENTER_METHOD: return EVENT_BYTES + ARG_BYTES * ((EnterMethodEvent) event).args.length;
+		case INVOKE_METHOD: return EVENT_BYTES + ARG_BYTES * ((InvokeMethodEvent) event).args.length;
+		case INVOKE_SPECIAL_METHOD: return EVENT_BYTES + ARG_BYTES * ((InvokeSpecialMethodEvent) event).args.length;
+		case INVOKE_STATIC_METHOD: return EVENT_BYTES + ARG_BYTES * ((InvokeStaticMethodEvent) event).args.length;
+		default: return EVENT_BYTES;
+		}
+	}
+
+	/**
+	 * Writes a triggered dump. Errors are counted in the recorder metrics rather than thrown,
+	 * since the trigger runs inside the program being recorded.
+	 */
+	private void triggerDump(String reason) {
+		if(dumping.get()) {
+			return;
+		}
+
+		dumping.set(true);
+		try {
+			dump(reason);
+		} catch(IOException | RuntimeException e) {
+			RecorderMetrics.getInstance().dumpFailed();
+		} finally {
+			dumping.set(false);
+		}
+	}
+
+	/**
+	 * Writes the events of every thread to a new file in the dump directory, and returns the file.
+	 */
+	public Path dump(String reason) throws IOException {
+		Path file = directory.resolve("flight-" + System.currentTimeMillis() + "-" + (dumpCount.get() + 1) + ".trace");
+		try(Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			dump(writer, reason);
+		}
+		return file;
+	}
+
+	/**
+	 * Writes the events of every thread to a trace, with the current thread first. The rings of
+	 * threads that have terminated are removed once they are written.
+	 */
+	public void dump(Writer writer, String reason) throws IOException {
+		List<Ring> rings = new ArrayList<>(this.rings.values());
+		Ring current = this.rings.get(Thread.currentThread());
+		if(current != null) {
+			rings.remove(current);
+			rings.add(0, current);
+		}
+
+		TraceWriter traceWriter = new TraceWriter(writer);
+		traceWriter.writeHeader(reason);
+		for(Ring ring:rings) {
+			traceWriter.writeThread(ring.thread, ring.getEvents());
+		}
+		traceWriter.flush();
+		dumpCount.incrementAndGet();
+
+		for(Ring ring:rings) {
+			if(!ring.thread.isAlive()) {
+				this.rings.remove(ring.thread, ring);
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the events currently kept for a thread, oldest first.
+	 */
+	public List<Event> getEvents(Thread thread) {
+		Ring ring = rings.get(thread);
+		return (ring == null) ? List.of() : ring.getEvents();
+	}
+
+	public void clear() {
+		rings.values().forEach(Ring::clear);
+	}
+}
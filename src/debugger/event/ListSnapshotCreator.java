@@ -8,6 +8,7 @@ import debugger.event.Events.Event;
 import debugger.event.Events.InvokeMethodEvent;
 import debugger.event.Events.InvokeSpecialMethodEvent;
 import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.Kind;
 
 public class ListSnapshotCreator implements SnapshotCreator {
 	public static class ListSnapshotEvent extends Event implements SnapshotEvent {
@@ -15,11 +16,21 @@ public class ListSnapshotCreator implements SnapshotCreator {
 		public final List<Object> list;
 
 		public ListSnapshotEvent(List<Object> list, int lineNumber, Thread thread, int methodIndex) {
-			super(lineNumber, thread, methodIndex);
+			super(Kind.SNAPSHOT, lineNumber, thread, methodIndex);
 			this.object = list;
 			this.list = new ArrayList<>(list);
 		}
 		
+		@Override
+		public <T> T accept(EventVisitor<T> visitor) {
+			return visitor.visitSnapshot(this);
+		}
+		
+		@Override
+		public Object getObject() {
+			return object;
+		}
+		
 		@Override
 		public Object getSnapshotObject() {
 			return new ArrayList<>(list);
@@ -0,0 +1,25 @@
+package debugger.event;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names objects by their simple class name and a number counting the objects of that class, such
+ * as "ArrayList-2". Objects are compared by identity, since they may be mutable collections whose
+ * hash codes change, and a name never changes once it is given.
+ */
+class ObjectNames {
+	private final Map<Session.IdentityKey, String> names = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Integer> counts = new ConcurrentHashMap<>();
+
+	public String getName(Object object) {
+		if(object == null) {
+			return "null";
+		}
+
+		return names.computeIfAbsent(new Session.IdentityKey(object), key -> {
+			int id = counts.merge(object.getClass(), 1, Integer::sum);
+			return object.getClass().getSimpleName() + "-" + id;
+		});
+	}
+}
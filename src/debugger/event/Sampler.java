@@ -0,0 +1,209 @@
+package debugger.event;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import debugger.metrics.RecorderMetrics;
+
+/**
+ * Decides which invocations record their data events, which are stores, field writes, and array
+ * writes. Enter and exit events are always recorded, so the call tree stays complete.
+ * <p>
+ * Each call site, a method identified by its class, name, and descriptor, samples one in every
+ * interval invocations. At the end of each period the interval of a site is scaled by the rate of
+ * data events it recorded, so that each site records about budget data events per second. The
+ * budget is per call site rather than global, so the total rate grows with the number of hot
+ * call sites.
+ * <p>
+ * Each thread counts its own invocations of a site, and caches the sites it has entered by the
+ * identity of the name strings, which are constants of the instrumented code, so that entering
+ * a method doesn't allocate or write to memory shared with other threads.
+ */
+public class Sampler {
+	private static final long DEFAULT_PERIOD_NANOS = 100_000_000L;
+	private static final long MAX_INTERVAL = 1 << 20;
+	private static final int SITE_CACHE_SIZE = 256;
+
+	private static class CallSiteKey {
+		private final String className;
+		private final String methodName;
+		private final String descriptor;
+
+		public CallSiteKey(String className, String methodName, String descriptor) {
+			this.className = className;
+			this.methodName = methodName;
+			this.descriptor = descriptor;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof CallSiteKey)) {
+				return false;
+			}
+			CallSiteKey key = (CallSiteKey) o;
+			return className.equals(key.className) && methodName.equals(key.methodName) && descriptor.equals(key.descriptor);
+		}
+
+		@Override
+		public int hashCode() {
+			return (className.hashCode() * 31 + methodName.hashCode()) * 31 + descriptor.hashCode();
+		}
+	}
+
+	private static class CallSite {
+		private final LongAdder dataEvents = new LongAdder();
+		private final AtomicLong periodStart;
+		private volatile long interval;
+
+		public CallSite(long interval, long now) {
+			this.interval = interval;
+			this.periodStart = new AtomicLong(now);
+		}
+	}
+
+	/**
+	 * The invocations of a thread that haven't exited, with the call site of each sampled
+	 * invocation, or null if it isn't sampled. Also holds a direct-mapped cache of the call
+	 * sites the thread has entered, with the number of times it entered each of them, counted
+	 * from a random start so that threads entering a site only a few times don't all sample it.
+	 */
+	private static class Frames {
+		private int[] methodIndexes = new int[16];
+		private CallSite[] callSites = new CallSite[16];
+		private int size;
+
+		private final String[] cachedClassNames = new String[SITE_CACHE_SIZE];
+		private final String[] cachedMethodNames = new String[SITE_CACHE_SIZE];
+		private final String[] cachedDescriptors = new String[SITE_CACHE_SIZE];
+		private final CallSite[] cachedSites = new CallSite[SITE_CACHE_SIZE];
+		private final long[] cachedInvocations = new long[SITE_CACHE_SIZE];
+
+		private void push(int methodIndex, CallSite callSite) {
+			if(size == methodIndexes.length) {
+				methodIndexes = Arrays.copyOf(methodIndexes, size * 2);
+				callSites = Arrays.copyOf(callSites, size * 2);
+			}
+			methodIndexes[size] = methodIndex;
+			callSites[size] = callSite;
+			size++;
+		}
+
+		private int find(int methodIndex) {
+			for(int i = size - 1; i >= 0; i--) {
+				if(methodIndexes[i] == methodIndex) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	private final double budget;
+	private final long initialInterval;
+	private final long periodNanos;
+
+	private final Map<CallSiteKey, CallSite> callSites = new ConcurrentHashMap<>();
+	private final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+
+	/**
+	 * Creates a sampler that records about budget data events per second at each call site,
+	 * not in total.
+	 */
+	public Sampler(double budget) {
+		this(budget, 1, DEFAULT_PERIOD_NANOS);
+	}
+
+	Sampler(double budget, long initialInterval, long periodNanos) {
+		if(budget <= 0 || initialInterval < 1 || periodNanos < 0) {
+			throw new IllegalArgumentException("Invalid sampling parameters");
+		}
+		this.budget = budget;
+		this.initialInterval = initialInterval;
+		this.periodNanos = periodNanos;
+	}
+
+	/**
+	 * Called when an invocation enters a method, to decide whether it is sampled.
+	 */
+	void enter(String className, String methodName, String descriptor, int methodIndex) {
+		Frames frames = this.frames.get();
+		int slot = (System.identityHashCode(methodName) * 31 + System.identityHashCode(descriptor)) & (SITE_CACHE_SIZE - 1);
+		if(frames.cachedMethodNames[slot] != methodName || frames.cachedDescriptors[slot] != descriptor || frames.cachedClassNames[slot] != className) {
+			frames.cachedClassNames[slot] = className;
+			frames.cachedMethodNames[slot] = methodName;
+			frames.cachedDescriptors[slot] = descriptor;
+			frames.cachedSites[slot] = callSites.computeIfAbsent(new CallSiteKey(className, methodName, descriptor), key -> new CallSite(initialInterval, System.nanoTime()));
+			frames.cachedInvocations[slot] = ThreadLocalRandom.current().nextLong(frames.cachedSites[slot].interval);
+		}
+		CallSite callSite = frames.cachedSites[slot];
+
+		boolean sampled = (frames.cachedInvocations[slot]++ % callSite.interval) == 0;
+		if(sampled) {
+			adapt(callSite);
+		}
+		frames.push(methodIndex, sampled ? callSite : null);
+	}
+
+	/**
+	 * Called when an invocation exits a method, removing it and any invocations above it that
+	 * didn't exit normally.
+	 */
+	void exit(int methodIndex) {
+		Frames frames = this.frames.get();
+		int index = frames.find(methodIndex);
+		if(index >= 0) {
+			Arrays.fill(frames.callSites, index, frames.size, null);
+			frames.size = index;
+		}
+	}
+
+	/**
+	 * Returns whether a data event of an invocation should be recorded. Invocations that
+	 * entered before sampling started are always recorded.
+	 */
+	boolean recordData(int methodIndex) {
+		Frames frames = this.frames.get();
+		int index = frames.find(methodIndex);
+		if(index < 0) {
+			return true;
+		}
+
+		CallSite callSite = frames.callSites[index];
+		if(callSite == null) {
+			RecorderMetrics.getInstance().eventsSampledOut(1);
+			return false;
+		}
+		callSite.dataEvents.increment();
+		return true;
+	}
+
+	/**
+	 * Scales the interval of a call site by the rate of data events it recorded during the
+	 * last period, dividing it by at most 2 at a time so that it doesn't oscillate.
+	 */
+	private void adapt(CallSite callSite) {
+		long now = System.nanoTime();
+		long start = callSite.periodStart.get();
+		long elapsed = now - start;
+		if(elapsed < periodNanos || elapsed <= 0 || !callSite.periodStart.compareAndSet(start, now)) {
+			return;
+		}
+
+		double rate = callSite.dataEvents.sumThenReset() * 1e9 / elapsed;
+		long interval = callSite.interval;
+		long scaled = (long) Math.ceil(interval * rate / budget);
+		callSite.interval = Math.max(1, Math.min(MAX_INTERVAL, Math.max(scaled, interval / 2)));
+	}
+
+	/**
+	 * Returns the current sampling interval of a method, or 0 if it hasn't been called.
+	 */
+	public long getInterval(String className, String methodName, String descriptor) {
+		CallSite callSite = callSites.get(new CallSiteKey(className, methodName, descriptor));
+		return (callSite == null) ? 0 : callSite.interval;
+	}
+}
@@ -0,0 +1,136 @@
+package debugger.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import debugger.event.Events.Event;
+
+/**
+ * A recording session, holding the events recorded between startSession and stopSession along
+ * with the state used to record them. Once a session is stopped its events no longer change,
+ * so the handle can be kept and read while later sessions are recorded.
+ * <p>
+ * Writers register with the session for the duration of each hook, so that stopping a session
+ * can wait for the writers that are still adding to it without the writers taking locks. The
+ * count of writers is striped by thread, with each stripe on its own cache line, so that threads
+ * recording at the same time don't contend on one counter.
+ */
+public class Session {
+	private static final int STRIPES = 16;
+	private static final int STRIPE_PADDING = 16;
+
+	/**
+	 * A key that compares objects by identity, since the objects seen may be mutable collections.
+	 */
+	static class IdentityKey {
+		private final Object object;
+
+		public IdentityKey(Object object) {
+			this.object = object;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return (o instanceof IdentityKey) && ((IdentityKey) o).object == object;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object);
+		}
+	}
+
+	private final int id;
+	private final EventBuffer events = new EventBuffer();
+	private final AtomicInteger methodIndex = new AtomicInteger();
+	private final Map<IdentityKey, Boolean> seenObjects = new ConcurrentHashMap<>();
+	private final ObjectNames objectNames = new ObjectNames();
+	private final AtomicLongArray writers = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+	private volatile boolean stopped;
+
+	Session(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Returns the number of this session, which increases with each session started.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Returns the buffer of events recorded in this session.
+	 */
+	public EventBuffer getEventBuffer() {
+		return events;
+	}
+
+	public List<Event> getEvents() {
+		return new ArrayList<>(events.asList());
+	}
+
+	/**
+	 * Returns the name of an object in this session, numbered by the objects of its class that
+	 * were named in this session before it.
+	 */
+	public String getObjectName(Object object) {
+		return objectNames.getName(object);
+	}
+
+	int nextMethodIndex() {
+		return methodIndex.incrementAndGet();
+	}
+
+	/**
+	 * Marks an object as seen, returning whether it was seen for the first time.
+	 */
+	boolean markSeen(Object object) {
+		return seenObjects.putIfAbsent(new IdentityKey(object), Boolean.TRUE) == null;
+	}
+
+	/**
+	 * Returns the stripe of the writer count for the current thread. A thread always uses the
+	 * same stripe, so that its registration and unregistration cancel out within the stripe.
+	 */
+	private static int getStripe() {
+		return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_PADDING;
+	}
+
+	void beginWrite() {
+		writers.incrementAndGet(getStripe());
+	}
+
+	void endWrite() {
+		writers.decrementAndGet(getStripe());
+	}
+
+	/**
+	 * Waits for the writers that registered before the session was replaced to finish. Writers
+	 * that register later see that the session was replaced and leave without writing. A late
+	 * writer only ever adds to its stripe while it is registered, so a sum of zero means that no
+	 * earlier writer is left in any stripe.
+	 */
+	void stop() {
+		while(countWriters() != 0) {
+			Thread.onSpinWait();
+		}
+		stopped = true;
+	}
+
+	private long countWriters() {
+		long count = 0;
+		for(int stripe = 0; stripe < STRIPES; stripe++) {
+			count += writers.get(stripe * STRIPE_PADDING);
+		}
+		return count;
+	}
+}
@@ -1,6 +1,10 @@
 package debugger.event;
 
 public interface SnapshotEvent {
+	/**
+	 * Returns the object of the program that this is a snapshot of.
+	 */
+	public Object getObject();
 	public Object getSnapshotObject();
 	public boolean matchesObject(Object object);
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+package debugger.event;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import debugger.event.Events.CatchExceptionEvent;
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.ExitWithExceptionEvent;
+import debugger.event.Events.ExitWithValueEvent;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeSpecialMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.PutFieldEvent;
+import debugger.event.Events.ReturnValueEvent;
+import debugger.event.Events.ReturnedValueEvent;
+import debugger.event.Events.SetLocalNameEvent;
+import debugger.event.Events.SetThisEvent;
+import debugger.event.Events.StoreArrayEvent;
+import debugger.event.Events.StoreEvent;
+import debugger.event.Events.SyncEvent;
+import debugger.event.Events.ThrowExceptionEvent;
+
+/**
+ * Writes events in a simple line-based text format. A trace starts with a header line, followed
+ * by a section for each thread:
+ * <pre>
+ * # debugger trace 1
+ * # reason: exception in thread main
+ * thread main 3
+ * ENTER_METHOD	1	12	ENTER METHOD: debugger/QuickSort, sort, ...
+ * </pre>
+ * The thread line has the number of events in the section, and each event line has the kind,
+ * method index, line number, and description of the event, separated by tabs. Values are
+ * described by their object names unless they are boxed primitives or strings, so writing a
+ * trace never calls the toString of an object of the program, or iterates a collection that
+ * another thread may be changing.
+ */
+public class TraceWriter {
+	public static final String HEADER = "# debugger trace 1";
+
+	/**
+	 * Describes events in the same form as their toString, with values described by describeValue.
+	 */
+	private static final EventVisitor<String> describer = new EventVisitor<String>() {
+		@Override
+		public String visitDefault(Event event) {
+			return event.kind.name();
+		}
+
+		@Override
+		public String visitPutField(PutFieldEvent event) {
+			return "PUT FIELD: " + Events.getObjectName(event.object) + ", " + event.name + ", " + describeValue(event.value);
+		}
+
+		@Override
+		public String visitStore(StoreEvent event) {
+			return "STORE: " + event.varIndex + ", " + describeValue(event.value);
+		}
+
+		@Override
+		public String visitStoreArray(StoreArrayEvent event) {
+			return "STORE ARRAY: " + Events.getObjectName(event.array) + ", " + event.index + ", " + describeValue(event.value);
+		}
+
+		@Override
+		public String visitInvokeMethod(InvokeMethodEvent event) {
+			return "INVOKE: " + Events.getObjectName(event.object) + ", " + event.name + ", " + event.descriptor + ", " + describeValues(event.args);
+		}
+
+		@Override
+		public String visitInvokeSpecialMethod(InvokeSpecialMethodEvent event) {
+			return "INVOKE SPECIAL: " + Events.getObjectName(event.object) + ", " + event.className + ", " + event.name + ", " + event.descriptor + ", " + describeValues(event.args);
+		}
+
+		@Override
+		public String visitInvokeStaticMethod(InvokeStaticMethodEvent event) {
+			return "INVOKE STATIC: " + event.className + ", " + event.name + ", " + event.descriptor + ", " + describeValues(event.args);
+		}
+
+		@Override
+		public String visitReturnValue(ReturnValueEvent event) {
+			return "RETURN: " + describeValue(event.value);
+		}
+
+		@Override
+		public String visitReturnedValue(ReturnedValueEvent event) {
+			return "RETURNED: " + describeValue(event.value);
+		}
+
+		@Override
+		public String visitThrowException(ThrowExceptionEvent event) {
+			return "THROW: " + describeValue(event.throwable);
+		}
+
+		@Override
+		public String visitCatchException(CatchExceptionEvent event) {
+			return "CATCH: " + describeValue(event.throwable);
+		}
+
+		@Override
+		public String visitSetThis(SetThisEvent event) {
+			return "SETTHIS: " + Events.getObjectName(event.getObject());
+		}
+
+		@Override
+		public String visitEnterMethod(EnterMethodEvent event) {
+			return "ENTER METHOD: " + event.className + ", " + event.name + ", " + event.descriptor + ", " + describeValues(event.args);
+		}
+
+		@Override
+		public String visitExitWithException(ExitWithExceptionEvent event) {
+			return "EXIT EXCEPTION: " + describeValue(event.throwable);
+		}
+
+		@Override
+		public String visitExitWithValue(ExitWithValueEvent event) {
+			return "EXIT VALUE: " + describeValue(event.value);
+		}
+
+		@Override
+		public String visitSetLocalName(SetLocalNameEvent event) {
+			return "SET LOCAL NAME: " + event.name + ", " + event.index;
+		}
+
+		@Override
+		public String visitSync(SyncEvent event) {
+			return "SYNC: " + event.type + ", " + Events.getObjectName(event.object) + (event.name == null ? "" : ", " + event.name) + ", #" + event.sequence;
+		}
+
+		@Override
+		public String visitSnapshot(SnapshotEvent event) {
+			Object snapshot = event.getSnapshotObject();
+			return "SNAPSHOT: " + ((snapshot instanceof List) ? describeValues(((List<?>) snapshot).toArray()) : describeValue(snapshot));
+		}
+	};
+
+	private final Writer writer;
+
+	public TraceWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	public void writeHeader(String reason) throws IOException {
+		writer.write(HEADER);
+		writer.write('\n');
+		writer.write("# reason: " + escape(reason));
+		writer.write('\n');
+	}
+
+	public void writeThread(Thread thread, List<Event> events) throws IOException {
+		writer.write("thread " + escape(thread.getName()) + " " + events.size());
+		writer.write('\n');
+		for(Event event:events) {
+			writeEvent(event);
+		}
+	}
+
+	public void writeEvent(Event event) throws IOException {
+		writer.write(event.kind.name());
+		writer.write('\t');
+		writer.write(String.valueOf(event.methodIndex));
+		writer.write('\t');
+		writer.write(String.valueOf(event.lineNumber));
+		writer.write('\t');
+		writer.write(escape(event.accept(describer)));
+		writer.write('\n');
+	}
+
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Describes a value without calling into the program, by its object name unless it is a boxed
+	 * primitive or a string.
+	 */
+	private static String describeValue(Object value) {
+		if(value == null) {
+			return "null";
+		}
+		Class<?> type = value.getClass();
+		if(type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+			|| type == Double.class || type == Float.class || type == Boolean.class || type == Character.class || type == String.class) {
+			return value.toString();
+		}
+		return Events.getObjectName(value);
+	}
+
+	private static String describeValues(Object[] values) {
+		List<String> descriptions = new ArrayList<>(values.length);
+		for(Object value:values) {
+			descriptions.add(describeValue(value));
+		}
+		return descriptions.toString();
+	}
+
+	/**
+	 * Escapes line breaks and tabs, so that each event stays on one line.
+	 */
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+	}
+}
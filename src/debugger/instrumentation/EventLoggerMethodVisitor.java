@@ -14,7 +14,9 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.GeneratorAdapter;
 
 import debugger.event.EventLogger;
+import debugger.event.Events.SyncEvent;
 import debugger.instrumentation.util.AsmUtil;
+import debugger.instrumentation.util.ClassInfo;
 
 public class EventLoggerMethodVisitor extends GeneratorAdapter implements MethodExitHandler, LineNumbersHandler {
 	private final AsmUtil asmUtil;
@@ -77,6 +79,24 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 		
 		invokeMethodEventLogger("", isStatic, isSpecial, owner, objectLocal, argLocal, name, descriptor);
 		
+		SyncEvent.Type releaseType = null;
+		SyncEvent.Type acquireType = null;
+		if(!isStatic && !name.equals("<init>")) {
+			if(name.equals("start") && descriptor.equals("()V") && ClassInfo.isThread(owner)) {
+				releaseType = SyncEvent.Type.THREAD_START;
+			} else if(name.equals("join") && ClassInfo.isThread(owner)) {
+				acquireType = SyncEvent.Type.THREAD_JOIN;
+			} else if(ClassInfo.isConcurrent(owner)) {
+				releaseType = SyncEvent.Type.RELEASE;
+				acquireType = SyncEvent.Type.ACQUIRE;
+			}
+		}
+		
+		if(releaseType != null) {
+			loadLocal(objectLocal);
+			logSync(releaseType, null);
+		}
+		
 		if(!isStatic) {
 			loadLocal(objectLocal);
 		}
@@ -90,6 +110,11 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 		invokeMethodEventLogger("After", isStatic, isSpecial, owner, objectLocal, argLocal, name, descriptor);
 
 		visitMethodReturned(descriptor);
+		
+		if(acquireType != null) {
+			loadLocal(objectLocal);
+			logSync(acquireType, null);
+		}
 	}
 
 	private void invokeMethodEventLogger(String suffix, boolean isStatic, boolean isSpecial, String owner, int objectLocal, int argLocal, String name, String descriptor) {
@@ -133,6 +158,22 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 		invokeEventLogger("returnedValue", "(Ljava/lang/Object;ILjava/lang/Thread;I)V");
 	}
 
+	/**
+	 * Logs a synchronization action on the object at the top of the stack, consuming it.
+	 */
+	private void logSync(SyncEvent.Type type, String name) {
+		if(name == null) {
+			super.visitInsn(Opcodes.ACONST_NULL);
+		} else {
+			push(name);
+		}
+		push(type.ordinal());
+		loadLineNumber();
+		loadCurrentThread();
+		loadLocal(methodIndexVar);
+		invokeEventLogger("sync", "(Ljava/lang/Object;Ljava/lang/String;IILjava/lang/Thread;I)V");
+	}
+
 	private void invokeEventLogger(String method, String descriptor) {
 		super.visitMethodInsn(Opcodes.INVOKESTATIC, AsmUtil.getAsmClassName(EventLogger.class), method, descriptor, false);
 	}
@@ -178,6 +219,45 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 			loadLocal(methodIndexVar);
 
 			invokeEventLogger("putField", "(Ljava/lang/Object;Ljava/lang/String;Ljava/lang/Object;ILjava/lang/Thread;I)V");
+			
+			if(ClassInfo.isVolatile(owner, name)) {
+				// Leave [..., objectRef, value, objectRef] for the sync event.
+				asmUtil.duplicate(Type.getType(descriptor).getSize(), 1);
+				if(Type.getType(descriptor).getSize() == 1) {
+					pop();
+				} else {
+					pop2();
+				}
+				logSync(SyncEvent.Type.VOLATILE_WRITE, name);
+			}
+			break;
+			
+		case Opcodes.PUTSTATIC:
+			if(ClassInfo.isVolatile(owner, name)) {
+				push(Type.getObjectType(owner));
+				logSync(SyncEvent.Type.VOLATILE_WRITE, name);
+			}
+			break;
+			
+		case Opcodes.GETFIELD:
+			if(ClassInfo.isVolatile(owner, name)) {
+				int objectLocal = newLocal(Type.getType(Object.class));
+				dup();
+				storeLocal(objectLocal);
+				super.visitFieldInsn(opcode, owner, name, descriptor);
+				loadLocal(objectLocal);
+				logSync(SyncEvent.Type.VOLATILE_READ, name);
+				return;
+			}
+			break;
+			
+		case Opcodes.GETSTATIC:
+			if(ClassInfo.isVolatile(owner, name)) {
+				super.visitFieldInsn(opcode, owner, name, descriptor);
+				push(Type.getObjectType(owner));
+				logSync(SyncEvent.Type.VOLATILE_READ, name);
+				return;
+			}
 			break;
 		}
 
@@ -236,6 +316,21 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 			loadLocal(methodIndexVar);
 			invokeEventLogger("throwException", "(Ljava/lang/Throwable;ILjava/lang/Thread;I)V");
 			break;
+		case Opcodes.MONITORENTER: {
+			dup();
+			logSync(SyncEvent.Type.MONITOR_REQUEST, null);
+			int monitorLocal = newLocal(Type.getType(Object.class));
+			dup();
+			storeLocal(monitorLocal);
+			super.visitInsn(opcode);
+			loadLocal(monitorLocal);
+			logSync(SyncEvent.Type.MONITOR_ENTER, null);
+			return;
+		}
+		case Opcodes.MONITOREXIT:
+			dup();
+			logSync(SyncEvent.Type.MONITOR_EXIT, null);
+			break;
 		case Opcodes.IASTORE:
 		case Opcodes.FASTORE:
 		case Opcodes.DASTORE:
@@ -389,10 +484,37 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 			loadLocal(methodIndexVar);
 			invokeEventLogger("setThis", "(Ljava/lang/Object;ILjava/lang/Thread;I)V");
 		}
+		
+		if((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+			loadMethodMonitor();
+			logSync(SyncEvent.Type.MONITOR_ENTER, null);
+		}
+	}
+	
+	/**
+	 * Loads the monitor held by a synchronized method, which is the object it was called on, or
+	 * the class for static methods. The monitor is entered before the method starts, so the
+	 * time spent waiting for it can't be logged.
+	 */
+	private void loadMethodMonitor() {
+		if((access & Opcodes.ACC_STATIC) == 0) {
+			loadThis();
+		} else {
+			push(Type.getObjectType(className));
+		}
+	}
+	
+	private void onSynchronizedExit() {
+		if((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+			loadMethodMonitor();
+			logSync(SyncEvent.Type.MONITOR_EXIT, null);
+		}
 	}
 
 	@Override
 	public void onReturn(int opcode) {
+		onSynchronizedExit();
+		
 		if(opcode == Opcodes.RETURN) {
 			super.visitInsn(Opcodes.ACONST_NULL);
 		} else {
@@ -411,6 +533,8 @@ public class EventLoggerMethodVisitor extends GeneratorAdapter implements Method
 
 	@Override
 	public void onThrow() {
+		onSynchronizedExit();
+		
 		super.visitInsn(Opcodes.DUP);
 		loadLineNumber();
 		loadCurrentThread();
@@ -4,6 +4,8 @@ import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
+import debugger.metrics.RecorderMetrics;
+
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.agent.ByteBuddyAgent;
 import net.bytebuddy.asm.AsmVisitorWrapper;
@@ -37,10 +39,12 @@ public class Instrumentor {
 	}
 	
 	public void instrumentClass(Class<?> clazz) {
+		long start = System.nanoTime();
 		new ByteBuddy()
 			.redefine(clazz)
 			.visit(new VisitorWrapper())
 			.make()
 			.load(getClass().getClassLoader(), ClassReloadingStrategy.fromInstalledAgent());
+		RecorderMetrics.getInstance().classInstrumented(clazz.getName(), System.nanoTime() - start);
 	}
 }
\ No newline at end of file
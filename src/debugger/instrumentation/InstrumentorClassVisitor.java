@@ -4,6 +4,8 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
+import debugger.metrics.RecorderMetrics;
+
 public class InstrumentorClassVisitor extends ClassVisitor {
 	private String className;
 
@@ -31,6 +33,8 @@ public class InstrumentorClassVisitor extends ClassVisitor {
 		
 		methodVisitor = new LineNumberMethodNode(methodVisitor, access, name, descriptor, signature, exceptions, eventLoggerMethodVisitor);
 		
+		RecorderMetrics.getInstance().methodInstrumented();
+		
 		return methodVisitor;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package debugger.instrumentation.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Looks up information about the classes referenced by instructions, such as whether a field
+ * is volatile, by loading them without initializing them. Classes that can't be loaded are
+ * treated as having no such properties.
+ */
+public class ClassInfo {
+	private static Class<?> findClass(String internalName) {
+		try {
+			return Class.forName(internalName.replace('/', '.'), false, ClassInfo.class.getClassLoader());
+		} catch(ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether a field of a class, or of one of its superclasses, is volatile.
+	 */
+	public static boolean isVolatile(String owner, String name) {
+		for(Class<?> clazz = findClass(owner); clazz != null; clazz = clazz.getSuperclass()) {
+			try {
+				Field field = clazz.getDeclaredField(name);
+				return Modifier.isVolatile(field.getModifiers());
+			} catch(NoSuchFieldException e) {
+				continue;
+			} catch(SecurityException | LinkageError e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether a class is Thread or a subclass of it.
+	 */
+	public static boolean isThread(String owner) {
+		Class<?> clazz = findClass(owner);
+		return clazz != null && Thread.class.isAssignableFrom(clazz);
+	}
+
+	/**
+	 * Returns whether a class is part of java.util.concurrent, whose operations synchronize.
+	 */
+	public static boolean isConcurrent(String owner) {
+		return owner.startsWith("java/util/concurrent/");
+	}
+}
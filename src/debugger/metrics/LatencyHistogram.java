@@ -0,0 +1,76 @@
+package debugger.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds, with a bucket for each power of two. Durations can
+ * be recorded from any thread without locking.
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+
+	/**
+	 * Records a duration in bucket floor(log2(nanos)), or bucket 0 for durations under 2ns.
+	 */
+	public void record(long nanos) {
+		int bucket = (nanos <= 1) ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+		counts.incrementAndGet(bucket);
+		count.increment();
+		totalNanos.add(nanos);
+	}
+
+	/**
+	 * Returns the number of durations in each bucket, where bucket i holds durations in [2^i, 2^(i+1)).
+	 */
+	public long[] getCounts() {
+		long[] values = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++) {
+			values[i] = counts.get(i);
+		}
+		return values;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMeanNanos() {
+		long count = this.count.sum();
+		return (count == 0) ? 0 : (double) totalNanos.sum() / count;
+	}
+
+	/**
+	 * Returns an upper bound of the duration below which the given fraction of durations fall,
+	 * which is the end of the bucket containing that duration.
+	 */
+	public long getPercentileNanos(double fraction) {
+		long[] values = getCounts();
+		long total = 0;
+		for(long value:values) {
+			total += value;
+		}
+
+		long target = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += values[i];
+			if(seen >= target && seen > 0) {
+				return (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << (i + 1));
+			}
+		}
+		return 0;
+	}
+
+	public void reset() {
+		for(int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		totalNanos.reset();
+	}
+}
@@ -0,0 +1,218 @@
+package debugger.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import debugger.event.Events.Kind;
+
+/**
+ * Counters and histograms of what the recorder is doing: the events logged by kind, the time
+ * taken to store an event, the size of the event buffer, the events dropped or sampled out,
+ * and the classes and methods instrumented with the time taken to transform each class. The
+ * counters can be updated from any thread without locking, and can be read from JMX once
+ * registered.
+ */
+public class RecorderMetrics implements RecorderMetricsMXBean {
+	private static final RecorderMetrics instance = new RecorderMetrics();
+	
+	/**
+	 * The capture latency is measured for one in every LATENCY_SAMPLE_RATE events, to avoid
+	 * reading the clock twice for every event.
+	 */
+	private static final int LATENCY_SAMPLE_RATE = 64;
+	
+	private final LongAdder[] eventCounts = new LongAdder[Kind.values().length];
+	private final LongAdder dropCount = new LongAdder();
+	private final LongAdder sampledOutCount = new LongAdder();
+	private final LongAdder dumpFailures = new LongAdder();
+	private final LatencyHistogram captureLatency = new LatencyHistogram();
+	private final LongAdder methodsInstrumented = new LongAdder();
+	private final Map<String, Long> transformNanos = new ConcurrentHashMap<>();
+	
+	private volatile IntSupplier bufferSize = () -> 0;
+	private volatile IntSupplier bufferCapacity = () -> 0;
+	
+	private RecorderMetrics() {
+		for(int i = 0; i < eventCounts.length; i++) {
+			eventCounts[i] = new LongAdder();
+		}
+	}
+	
+	public static RecorderMetrics getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Registers the metrics with the platform MBean server, if they aren't already registered.
+	 */
+	public static void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("debugger:type=RecorderMetrics");
+			if(!server.isRegistered(name)) {
+				server.registerMBean(instance, name);
+			}
+		} catch(JMException e) {
+			throw new RuntimeException("Error registering metrics", e);
+		}
+	}
+	
+	/**
+	 * Sets the gauges that read the number of events in the current buffer, and the number of
+	 * events it can hold without allocating.
+	 */
+	public void setBufferGauges(IntSupplier bufferSize, IntSupplier bufferCapacity) {
+		this.bufferSize = bufferSize;
+		this.bufferCapacity = bufferCapacity;
+	}
+	
+	public void eventRecorded(Kind kind) {
+		eventCounts[kind.ordinal()].increment();
+	}
+	
+	/**
+	 * Returns whether the latency of the next event should be measured. Each thread picks
+	 * roughly one in every LATENCY_SAMPLE_RATE of its events at random, so that threads logging
+	 * at the same time don't share a counter.
+	 */
+	public boolean sampleLatency() {
+		return ThreadLocalRandom.current().nextInt(LATENCY_SAMPLE_RATE) == 0;
+	}
+	
+	public void captureLatency(long nanos) {
+		captureLatency.record(nanos);
+	}
+	
+	public void eventsDropped(int count) {
+		dropCount.add(count);
+	}
+	
+	/**
+	 * Counts data events that weren't recorded because their invocation wasn't sampled.
+	 */
+	public void eventsSampledOut(int count) {
+		sampledOutCount.add(count);
+	}
+	
+	/**
+	 * Counts flight recorder dumps that failed, which can't be reported to the recorded program.
+	 */
+	public void dumpFailed() {
+		dumpFailures.increment();
+	}
+	
+	public void methodInstrumented() {
+		methodsInstrumented.increment();
+	}
+	
+	public void classInstrumented(String className, long nanos) {
+		transformNanos.merge(className, nanos, Long::sum);
+	}
+	
+	@Override
+	public long getEventCount() {
+		long total = 0;
+		for(LongAdder count:eventCounts) {
+			total += count.sum();
+		}
+		return total;
+	}
+	
+	public long getEventCount(Kind kind) {
+		return eventCounts[kind.ordinal()].sum();
+	}
+	
+	@Override
+	public Map<String, Long> getEventCountsByKind() {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for(Kind kind:Kind.values()) {
+			counts.put(kind.name(), eventCounts[kind.ordinal()].sum());
+		}
+		return counts;
+	}
+	
+	@Override
+	public long getDropCount() {
+		return dropCount.sum();
+	}
+	
+	@Override
+	public long getSampledOutCount() {
+		return sampledOutCount.sum();
+	}
+	
+	@Override
+	public long getDumpFailures() {
+		return dumpFailures.sum();
+	}
+	
+	@Override
+	public int getBufferSize() {
+		return bufferSize.getAsInt();
+	}
+	
+	@Override
+	public int getBufferCapacity() {
+		return bufferCapacity.getAsInt();
+	}
+	
+	@Override
+	public double getCaptureLatencyMeanNanos() {
+		return captureLatency.getMeanNanos();
+	}
+	
+	@Override
+	public long getCaptureLatencyP50Nanos() {
+		return captureLatency.getPercentileNanos(0.5);
+	}
+	
+	@Override
+	public long getCaptureLatencyP99Nanos() {
+		return captureLatency.getPercentileNanos(0.99);
+	}
+	
+	@Override
+	public long[] getCaptureLatencyHistogram() {
+		return captureLatency.getCounts();
+	}
+	
+	@Override
+	public int getClassesInstrumented() {
+		return transformNanos.size();
+	}
+	
+	@Override
+	public long getMethodsInstrumented() {
+		return methodsInstrumented.sum();
+	}
+	
+	@Override
+	public Map<String, Long> getTransformNanosByClass() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(transformNanos));
+	}
+	
+	/**
+	 * Resets the event counters and latencies. The instrumentation counters are kept, since
+	 * classes stay instrumented.
+	 */
+	@Override
+	public void reset() {
+		for(LongAdder count:eventCounts) {
+			count.reset();
+		}
+		dropCount.reset();
+		sampledOutCount.reset();
+		dumpFailures.reset();
+		captureLatency.reset();
+	}
+}
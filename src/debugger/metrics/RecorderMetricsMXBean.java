@@ -0,0 +1,24 @@
+package debugger.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the recorder metrics, registered as debugger:type=RecorderMetrics.
+ */
+public interface RecorderMetricsMXBean {
+	public long getEventCount();
+	public Map<String, Long> getEventCountsByKind();
+	public long getDropCount();
+	public long getSampledOutCount();
+	public long getDumpFailures();
+	public int getBufferSize();
+	public int getBufferCapacity();
+	public double getCaptureLatencyMeanNanos();
+	public long getCaptureLatencyP50Nanos();
+	public long getCaptureLatencyP99Nanos();
+	public long[] getCaptureLatencyHistogram();
+	public int getClassesInstrumented();
+	public long getMethodsInstrumented();
+	public Map<String, Long> getTransformNanosByClass();
+	public void reset();
+}
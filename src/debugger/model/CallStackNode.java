@@ -13,6 +13,8 @@ public class CallStackNode {
 	private List<Object> arguments;
 	private Object returnValue;
 	private Throwable exception;
+	private long inclusiveNanos = -1;
+	private long exclusiveNanos = -1;
 
 	public CallStackNode getParentNode() {
 		return parentNode;
@@ -78,6 +80,28 @@ public class CallStackNode {
 		this.exception = exception;
 	}
 
+	/**
+	 * Returns the time spent in the call including the calls it made, or -1 if unknown.
+	 */
+	public long getInclusiveNanos() {
+		return inclusiveNanos;
+	}
+
+	public void setInclusiveNanos(long inclusiveNanos) {
+		this.inclusiveNanos = inclusiveNanos;
+	}
+
+	/**
+	 * Returns the time spent in the call excluding the calls it made, or -1 if unknown.
+	 */
+	public long getExclusiveNanos() {
+		return exclusiveNanos;
+	}
+
+	public void setExclusiveNanos(long exclusiveNanos) {
+		this.exclusiveNanos = exclusiveNanos;
+	}
+
 	public List<CallStackNode> getChildren() {
 		return children;
 	}
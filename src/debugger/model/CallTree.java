@@ -0,0 +1,417 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.IntToLongFunction;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.ExitWithExceptionEvent;
+import debugger.event.Events.ExitWithValueEvent;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeSpecialMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.ReturnedValueEvent;
+import debugger.util.IntList;
+
+/**
+ * An index of the calls made by each thread, stored as offsets into the event log. Each call
+ * is identified by an int, with ROOT as the parent of the top level calls. Only the offsets of
+ * the events that start, enter, and end a call are kept, and CallStackNodes are created from
+ * these events when they are requested. If the events were stamped with times, the time spent
+ * in each call is computed from the stamps of its start and end events.
+ */
+public class CallTree implements ThreadedEventIndex {
+	public static final int ROOT = 0;
+
+	private static class Frame {
+		private final int call;
+		private final String className;
+		private final String methodName;
+		private final String descriptor;
+		private int methodIndex;
+		private int lastChild = -1;
+
+		public Frame(int call, int methodIndex, String className, String methodName, String descriptor) {
+			this.call = call;
+			this.methodIndex = methodIndex;
+			this.className = className;
+			this.methodName = methodName;
+			this.descriptor = descriptor;
+		}
+	}
+
+	private static class ThreadCalls {
+		private final IntList startOffsets = new IntList();
+		private final IntList enterOffsets = new IntList();
+		private final IntList endOffsets = new IntList();
+		private final IntList firstChildren = new IntList();
+		private final IntList nextSiblings = new IntList();
+		private final IntList childCounts = new IntList();
+		private final List<Frame> stack = new ArrayList<>();
+
+		public ThreadCalls() {
+			addCall(-1);
+			stack.add(new Frame(ROOT, 0, null, null, null));
+		}
+
+		private int addCall(int startOffset) {
+			startOffsets.add(startOffset);
+			enterOffsets.add(-1);
+			endOffsets.add(-1);
+			firstChildren.add(-1);
+			nextSiblings.add(-1);
+			childCounts.add(0);
+			return startOffsets.size() - 1;
+		}
+
+		public void addChild(int offset, int methodIndex, String className, String methodName, String descriptor) {
+			Frame parent = stack.get(stack.size() - 1);
+			int call = addCall(offset);
+
+			if(parent.lastChild < 0) {
+				firstChildren.set(parent.call, call);
+			} else {
+				nextSiblings.set(parent.lastChild, call);
+			}
+			parent.lastChild = call;
+			childCounts.set(parent.call, childCounts.get(parent.call) + 1);
+
+			if(methodIndex >= 0) {
+				enterOffsets.set(call, offset);
+			}
+			stack.add(new Frame(call, methodIndex, className, methodName, descriptor));
+		}
+
+		/**
+		 * Ends the innermost call with the method index, and any calls inside it.
+		 */
+		public void exit(int offset, int methodIndex) {
+			for(int i = stack.size() - 1; i > 0; i--) {
+				if(stack.get(i).methodIndex == methodIndex) {
+					endOffsets.set(stack.get(i).call, offset);
+					while(stack.size() > i) {
+						stack.remove(stack.size() - 1);
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	private final List<Event> events;
+	private final IntToLongFunction nanoTimes;
+	private final Map<Thread, ThreadCalls> threadCalls = new HashMap<>();
+
+	/**
+	 * Creates an index of the events, which are later added in order with add.
+	 */
+	public CallTree(List<Event> events) {
+		this(events, offset -> -1);
+	}
+
+	/**
+	 * Creates an index of the events, with a function returning the time stamp of the event at
+	 * an offset, or -1 if it wasn't stamped.
+	 */
+	public CallTree(List<Event> events, IntToLongFunction nanoTimes) {
+		this.events = events;
+		this.nanoTimes = nanoTimes;
+	}
+
+	@Override
+	public void add(int offset, Event event) {
+		switch(event.kind) {
+		case ENTER_METHOD: {
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			ThreadCalls calls = getThreadCalls(event.thread);
+			Frame frame = calls.stack.get(calls.stack.size() - 1);
+			if(sameMethod(frame, enterMethodEvent.className, enterMethodEvent.name, enterMethodEvent.descriptor)) {
+				frame.methodIndex = event.methodIndex;
+				calls.enterOffsets.set(frame.call, offset);
+			} else {
+				calls.addChild(offset, event.methodIndex, enterMethodEvent.className, enterMethodEvent.name, enterMethodEvent.descriptor);
+			}
+			break;
+		}
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION:
+			getThreadCalls(event.thread).exit(offset, event.methodIndex);
+			break;
+
+		case INVOKE_STATIC_METHOD: {
+			InvokeStaticMethodEvent invokeStaticMethodEvent = (InvokeStaticMethodEvent) event;
+			getThreadCalls(event.thread).addChild(offset, -1, invokeStaticMethodEvent.className, invokeStaticMethodEvent.name, invokeStaticMethodEvent.descriptor);
+			break;
+		}
+
+		case INVOKE_METHOD: {
+			InvokeMethodEvent invokeMethodEvent = (InvokeMethodEvent) event;
+			getThreadCalls(event.thread).addChild(offset, -1, getClassName(invokeMethodEvent), invokeMethodEvent.name, invokeMethodEvent.descriptor);
+			break;
+		}
+
+		case INVOKE_SPECIAL_METHOD: {
+			InvokeSpecialMethodEvent invokeSpecialMethodEvent = (InvokeSpecialMethodEvent) event;
+			getThreadCalls(event.thread).addChild(offset, -1, invokeSpecialMethodEvent.className, invokeSpecialMethodEvent.name, invokeSpecialMethodEvent.descriptor);
+			break;
+		}
+
+		case RETURNED_VALUE: {
+			ThreadCalls calls = getThreadCalls(event.thread);
+			Frame frame = calls.stack.get(calls.stack.size() - 1);
+			if(frame.call != ROOT && frame.methodIndex < 0) {
+				calls.endOffsets.set(frame.call, offset);
+				calls.stack.remove(calls.stack.size() - 1);
+			}
+			break;
+		}
+
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public CallTree createPart() {
+		return new CallTree(events, nanoTimes);
+	}
+
+	@Override
+	public void merge(ThreadedEventIndex part) {
+		threadCalls.putAll(((CallTree) part).threadCalls);
+	}
+
+	private ThreadCalls getThreadCalls(Thread thread) {
+		return threadCalls.computeIfAbsent(thread, k -> new ThreadCalls());
+	}
+
+	private static String getClassName(InvokeMethodEvent event) {
+		return event.object.getClass().getName().replace('.', '/');
+	}
+
+	private static boolean sameMethod(Frame frame, String className, String methodName, String descriptor) {
+		if(!Objects.equals(frame.methodName, methodName)) return false;
+		if(!Objects.equals(frame.className, className)) return false;
+		if(!Objects.equals(frame.descriptor, descriptor)) return false;
+		return true;
+	}
+
+	/**
+	 * Returns the number of calls made directly from a call by a thread.
+	 */
+	public int getChildCount(Thread thread, int call) {
+		ThreadCalls calls = threadCalls.get(thread);
+		return (calls == null) ? 0 : calls.childCounts.get(call);
+	}
+
+	/**
+	 * Returns the calls made directly from a call by a thread, in the order they were made.
+	 */
+	public int[] getChildren(Thread thread, int call) {
+		ThreadCalls calls = threadCalls.get(thread);
+		if(calls == null) {
+			return new int[0];
+		}
+
+		int[] children = new int[calls.childCounts.get(call)];
+		int child = calls.firstChildren.get(call);
+		for(int i = 0; i < children.length; i++) {
+			children[i] = child;
+			child = calls.nextSiblings.get(child);
+		}
+		return children;
+	}
+
+	/**
+	 * Returns the offset of the event that started a call, which is either the invoke event
+	 * from the caller, or the enter event if the caller wasn't instrumented.
+	 */
+	public int getStartOffset(Thread thread, int call) {
+		return threadCalls.get(thread).startOffsets.get(call);
+	}
+
+	/**
+	 * Returns the offset of the event that ended a call, or -1 if it hasn't returned yet.
+	 */
+	public int getEndOffset(Thread thread, int call) {
+		return threadCalls.get(thread).endOffsets.get(call);
+	}
+
+	/**
+	 * Creates a node for a call, without its parent or children.
+	 */
+	public CallStackNode getNode(Thread thread, int call) {
+		ThreadCalls calls = threadCalls.get(thread);
+
+		CallStackNode node = new CallStackNode();
+
+		int enterOffset = calls.enterOffsets.get(call);
+		node.setMethodIndex(enterOffset < 0 ? -1 : events.get(enterOffset).methodIndex);
+
+		Event startEvent = events.get(calls.startOffsets.get(call));
+		switch(startEvent.kind) {
+		case ENTER_METHOD: {
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) startEvent;
+			setMethod(node, enterMethodEvent.className, enterMethodEvent.name, enterMethodEvent.descriptor, enterMethodEvent.args);
+			break;
+		}
+
+		case INVOKE_STATIC_METHOD: {
+			InvokeStaticMethodEvent invokeStaticMethodEvent = (InvokeStaticMethodEvent) startEvent;
+			setMethod(node, invokeStaticMethodEvent.className, invokeStaticMethodEvent.name, invokeStaticMethodEvent.descriptor, invokeStaticMethodEvent.args);
+			break;
+		}
+
+		case INVOKE_METHOD: {
+			InvokeMethodEvent invokeMethodEvent = (InvokeMethodEvent) startEvent;
+			setMethod(node, getClassName(invokeMethodEvent), invokeMethodEvent.name, invokeMethodEvent.descriptor, invokeMethodEvent.args);
+			break;
+		}
+
+		case INVOKE_SPECIAL_METHOD: {
+			InvokeSpecialMethodEvent invokeSpecialMethodEvent = (InvokeSpecialMethodEvent) startEvent;
+			setMethod(node, invokeSpecialMethodEvent.className, invokeSpecialMethodEvent.name, invokeSpecialMethodEvent.descriptor, invokeSpecialMethodEvent.args);
+			break;
+		}
+
+		default:
+			break;
+		}
+
+		int endOffset = calls.endOffsets.get(call);
+		if(endOffset >= 0) {
+			Event endEvent = events.get(endOffset);
+			switch(endEvent.kind) {
+			case EXIT_WITH_VALUE:
+				node.setReturnValue(((ExitWithValueEvent) endEvent).value);
+				break;
+
+			case EXIT_WITH_EXCEPTION:
+				node.setException(((ExitWithExceptionEvent) endEvent).throwable);
+				break;
+
+			case RETURNED_VALUE:
+				node.setReturnValue(((ReturnedValueEvent) endEvent).value);
+				break;
+
+			default:
+				break;
+			}
+		}
+
+		node.setInclusiveNanos(getInclusiveNanos(thread, call));
+		node.setExclusiveNanos(getExclusiveNanos(thread, call));
+
+		return node;
+	}
+
+	/**
+	 * Returns the time from the start to the end of a call, including the calls it made, or -1
+	 * if the call hasn't ended or its events weren't stamped.
+	 */
+	public long getInclusiveNanos(Thread thread, int call) {
+		ThreadCalls calls = threadCalls.get(thread);
+		int startOffset = calls.startOffsets.get(call);
+		int endOffset = calls.endOffsets.get(call);
+		if(startOffset < 0 || endOffset < 0) {
+			return -1;
+		}
+
+		long startTime = nanoTimes.applyAsLong(startOffset);
+		long endTime = nanoTimes.applyAsLong(endOffset);
+		return (startTime < 0 || endTime < 0) ? -1 : Math.max(endTime - startTime, 0);
+	}
+
+	/**
+	 * Returns the time spent in a call excluding the calls it made, or -1 if it isn't known.
+	 */
+	public long getExclusiveNanos(Thread thread, int call) {
+		long nanos = getInclusiveNanos(thread, call);
+		if(nanos < 0) {
+			return -1;
+		}
+
+		for(int child:getChildren(thread, call)) {
+			nanos -= Math.max(getInclusiveNanos(thread, child), 0);
+		}
+		return Math.max(nanos, 0);
+	}
+
+	/**
+	 * Returns up to count calls of a thread with the longest inclusive time, slowest first.
+	 */
+	public int[] getSlowestCalls(Thread thread, int count) {
+		ThreadCalls calls = threadCalls.get(thread);
+		if(calls == null || count <= 0) {
+			return new int[0];
+		}
+
+		PriorityQueue<long[]> slowest = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+		for(int call = ROOT + 1; call < calls.startOffsets.size(); call++) {
+			long nanos = getInclusiveNanos(thread, call);
+			if(nanos < 0) {
+				continue;
+			}
+			if(slowest.size() < count) {
+				slowest.add(new long[] {nanos, call});
+			} else if(nanos > slowest.peek()[0]) {
+				slowest.poll();
+				slowest.add(new long[] {nanos, call});
+			}
+		}
+
+		int[] result = new int[slowest.size()];
+		for(int i = result.length - 1; i >= 0; i--) {
+			result[i] = (int) slowest.poll()[1];
+		}
+		return result;
+	}
+
+	private static void setMethod(CallStackNode node, String className, String methodName, String descriptor, Object[] args) {
+		node.setClassName(className);
+		node.setMethodName(methodName);
+		node.setDescriptor(descriptor);
+		node.setArguments(Arrays.asList(args));
+	}
+
+	/**
+	 * Creates the nodes for every call made by a thread, linked to their parents and children.
+	 */
+	public List<CallStackNode> getCallStack(Thread thread) {
+		CallStackNode rootNode = new CallStackNode();
+		if(!threadCalls.containsKey(thread)) {
+			return rootNode.getChildren();
+		}
+
+		List<CallStackNode> parentNodes = new ArrayList<>();
+		IntList calls = new IntList();
+		parentNodes.add(rootNode);
+		calls.add(ROOT);
+
+		while(!calls.isEmpty()) {
+			int call = calls.removeLast();
+			CallStackNode parentNode = parentNodes.remove(parentNodes.size() - 1);
+
+			int[] children = getChildren(thread, call);
+			List<CallStackNode> childNodes = parentNode.getChildren();
+			for(int child:children) {
+				CallStackNode node = getNode(thread, child);
+				node.setParentNode(parentNode);
+				childNodes.add(node);
+			}
+			for(int i = children.length - 1; i >= 0; i--) {
+				calls.add(children[i]);
+				parentNodes.add(childNodes.get(i));
+			}
+		}
+
+		return rootNode.getChildren();
+	}
+}
@@ -0,0 +1,13 @@
+package debugger.model;
+
+import debugger.event.Events.Event;
+
+/**
+ * An index over the events of an event log, that is built incrementally as events are added.
+ */
+interface EventIndex {
+	/**
+	 * Adds the event at an offset in the event log. Events are added in order of their offset.
+	 */
+	public void add(int offset, Event event);
+}
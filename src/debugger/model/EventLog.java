@@ -6,192 +6,460 @@ import static debugger.util.CollectionUtil.lastIndexOf;
 import java.io.File;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntToLongFunction;
 import java.util.stream.Stream;
 
+import debugger.event.EventBuffer;
 import debugger.event.EventLogger;
-import debugger.event.Events.EnterMethodEvent;
 import debugger.event.Events.Event;
-import debugger.event.Events.ExitWithExceptionEvent;
-import debugger.event.Events.ExitWithValueEvent;
 import debugger.event.Events.InvokeMethodEvent;
-import debugger.event.Events.InvokeSpecialMethodEvent;
-import debugger.event.Events.InvokeStaticMethodEvent;
-import debugger.event.Events.ReturnValueEvent;
-import debugger.event.Events.ReturnedValueEvent;
+import debugger.event.Events.Kind;
 import debugger.event.Events.SetLocalNameEvent;
 import debugger.event.Events.StoreEvent;
 import debugger.event.SnapshotCreator;
 import debugger.event.SnapshotEvent;
 import debugger.instrumentation.util.AsmUtil;
+import debugger.model.ThreadRegistry.ThreadInfo;
+import debugger.model.ValueHistory.ValueChange;
 
 public class EventLog {
+	/**
+	 * The parts of the event log that can change between notifications.
+	 */
+	public enum Change {
+		EVENTS,
+		INDEX,
+		INDEXING,
+		THREAD,
+		SOURCE
+	}
+	
+	/**
+	 * Receives coalesced change notifications, with the set of changes since the last notification.
+	 */
+	public interface ChangeListener {
+		public void changed(Set<Change> changes);
+	}
+	
+	/**
+	 * Receives the progress of building the indexes of a large event log in parallel. It may be
+	 * called from several pool threads at once.
+	 */
+	interface IndexProgressListener {
+		public void progress(long indexed, long total);
+	}
+	
+	/**
+	 * The indexes over the events, which are replaced as a whole once a parallel build of them
+	 * has finished.
+	 */
+	private static class Indexes {
+		private final LineHistogram lineHistogram = new LineHistogram();
+		private final CallTree callTree;
+		private final ThreadRegistry threadRegistry = new ThreadRegistry();
+		private final Timeline timeline = new Timeline();
+		private final SearchIndex searchIndex;
+		private final ValueHistory valueHistory;
+		private final HappensBefore happensBefore;
+		private final LockStats lockStats = new LockStats();
+		private final FlameGraph flameGraph;
+		private final List<EventIndex> all;
+
+		public Indexes(List<Event> events, IntToLongFunction nanoTimes) {
+			this.callTree = new CallTree(events, nanoTimes);
+			this.flameGraph = new FlameGraph(nanoTimes);
+			this.searchIndex = new SearchIndex(events);
+			this.valueHistory = new ValueHistory(events);
+			this.happensBefore = new HappensBefore(events);
+			this.all = List.of(lineHistogram, callTree, threadRegistry, timeline, searchIndex, valueHistory, happensBefore, lockStats, flameGraph);
+		}
+
+		/**
+		 * Adds the events in [0, size) to the indexes, which must be empty, in parallel.
+		 */
+		public void build(List<Event> events, int size, IndexProgressListener progressListener) {
+			new ParallelIndexBuilder(events, progressListener).build(size,
+				List.of(lineHistogram, callTree, valueHistory),
+				List.of(threadRegistry, timeline, searchIndex, happensBefore, lockStats, flameGraph));
+		}
+	}
+	
+	/**
+	 * The number of unindexed events from which the indexes are built from scratch in parallel.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	
 	private final List<Event> events;
-	private final List<Runnable> changeCallbacks = new ArrayList<>();
+	private final EventBuffer.Cursor cursor;
+	private final List<ChangeListener> changeListeners = new ArrayList<>();
+	private final Set<Change> pendingChanges = EnumSet.noneOf(Change.class);
+	
+	private final IntToLongFunction nanoTimes;
+	private Indexes indexes;
+	private int indexedSize;
+	
+	private ForkJoinTask<?> parallelBuild;
+	private Indexes parallelIndexes;
+	private int parallelSize;
+	private volatile double indexProgress = 1;
+	
+	private Executor notificationExecutor = Runnable::run;
+	private boolean notificationScheduled;
 	
 	private File sourceFile;
 	
+	private int size;
 	private int currentIndex;
 	private Thread currentThread;
 	
 	public EventLog(List<Event> events) {
 		this.events = events;
+		this.cursor = null;
+		this.size = events.size();
+		this.nanoTimes = offset -> -1;
+		this.indexes = new Indexes(events, nanoTimes);
+	}
+	
+	/**
+	 * Creates an event log that follows a buffer while events are still being added to it.
+	 * Newly added events become visible on each call to update.
+	 */
+	public EventLog(EventBuffer buffer) {
+		this.events = buffer.asList();
+		this.cursor = buffer.cursor();
+		this.nanoTimes = buffer::getNanoTime;
+		this.indexes = new Indexes(events, nanoTimes);
+	}
+	
+	/**
+	 * Consumes any events added to the buffer since the last update, and notifies the change
+	 * listeners once for the whole batch. Returns whether there were new events.
+	 */
+	public boolean update() {
+		if(cursor == null) {
+			return false;
+		}
+		
+		List<Event> added = cursor.next();
+		if(added.isEmpty()) {
+			return false;
+		}
+		
+		size += added.size();
+		if(indexedSize == 0 && parallelBuild == null && size >= PARALLEL_THRESHOLD) {
+			startParallelBuild();
+		}
+		fireChange(Change.EVENTS);
+		return true;
+	}
+	
+	/**
+	 * Starts building the indexes of the events so far on the common fork/join pool. Until it
+	 * finishes, the getters return the empty indexes, and the progress is notified as INDEXING
+	 * changes from the pool threads. Once it has finished, an EVENTS change is notified and the
+	 * built indexes are swapped in by the next updateIndexes.
+	 */
+	private void startParallelBuild() {
+		Indexes building = new Indexes(events, nanoTimes);
+		int buildSize = size;
+		parallelIndexes = building;
+		parallelSize = buildSize;
+		indexProgress = 0;
+		parallelBuild = ForkJoinPool.commonPool().submit(() -> {
+			try {
+				building.build(events, buildSize, this::indexProgress);
+			} finally {
+				indexProgress = 1;
+				fireChange(Change.INDEXING);
+				fireChange(Change.EVENTS);
+			}
+		});
+	}
+	
+	private void indexProgress(long indexed, long total) {
+		indexProgress = (double) indexed / total;
+		fireChange(Change.INDEXING);
+	}
+	
+	/**
+	 * Returns the fraction of the events added to the indexes by the parallel build that is
+	 * running, or 1 if the indexes aren't being built in parallel.
+	 */
+	public double getIndexProgress() {
+		return indexProgress;
+	}
+	
+	/**
+	 * Sets the executor used to deliver change notifications. Changes made before a scheduled
+	 * notification runs are coalesced into it. Defaults to notifying synchronously, in which case
+	 * INDEXING changes are delivered on the pool threads building the indexes.
+	 */
+	public void setNotificationExecutor(Executor notificationExecutor) {
+		this.notificationExecutor = notificationExecutor;
 	}
 	
+	/**
+	 * Adds a callback that is run once now, and then on every change notification.
+	 * Returns a runnable that removes the callback.
+	 */
 	public Runnable addChangeCallback(Runnable callback) {
-		changeCallbacks.add(callback);
-		callback.run();
-		return () -> changeCallbacks.remove(callback);
+		return addChangeListener(changes -> callback.run());
 	}
 	
-	private void fireChangeCallbacks() {
-		new ArrayList<>(changeCallbacks).forEach(Runnable::run);
+	/**
+	 * Adds a listener that is called once now with every change, and then with the changes
+	 * since the previous notification. Returns a runnable that removes the listener.
+	 */
+	public Runnable addChangeListener(ChangeListener listener) {
+		changeListeners.add(listener);
+		listener.changed(EnumSet.allOf(Change.class));
+		return () -> changeListeners.remove(listener);
 	}
 	
-	public List<Thread> getThreads() {
-		return events.stream()
-			.map(Event::getThread)
-			.distinct()
-			.sorted(Comparator.comparing(Thread::getName))
-			.collect(Collectors.toList());
+	private synchronized void fireChange(Change change) {
+		pendingChanges.add(change);
+		if(!notificationScheduled) {
+			notificationScheduled = true;
+			notificationExecutor.execute(this::deliverChanges);
+		}
 	}
-
-	public List<CallStackNode> getCallStack() {
-		CallStackNode rootNode = new CallStackNode();
-		
-		CallStackNode currentNode = rootNode;
+	
+	private void deliverChanges() {
+		Set<Change> changes;
+		synchronized(this) {
+			changes = EnumSet.copyOf(pendingChanges);
+			pendingChanges.clear();
+			notificationScheduled = false;
+		}
 		
-		for(Event event:events) {
-			if(event.thread != currentThread) {
-				continue;
-			}
-			
-			if(event instanceof EnterMethodEvent) {
-				EnterMethodEvent enterMethodEvent = ((EnterMethodEvent) event);
-				CallStackNode node = new CallStackNode();
-				node.setMethodIndex(enterMethodEvent.methodIndex);
-				node.setParentNode(currentNode);
-				node.setMethodName(enterMethodEvent.name);
-				node.setDescriptor(enterMethodEvent.descriptor);
-				node.setClassName(enterMethodEvent.className);
-				node.setArguments(Arrays.asList(enterMethodEvent.args));
-				
-				if(sameMethod(currentNode, node)) {
-					currentNode.setMethodIndex(node.getMethodIndex());
-				} else {
-					currentNode = currentNode.addChild(node);
-				}
-			}
-			
-			if(event instanceof ExitWithValueEvent) {
-				ExitWithValueEvent exitWithValueEvent = ((ExitWithValueEvent) event);
-				if(currentNode != null) {
-					while(currentNode.getMethodIndex() != exitWithValueEvent.getMethodIndex()) {
-						currentNode = currentNode.getParentNode();
-					}
-					currentNode.setReturnValue(exitWithValueEvent.value);
-					currentNode = currentNode.getParentNode();
-				}
-			}
-			
-			if(event instanceof ExitWithExceptionEvent) {
-				ExitWithExceptionEvent exitWithExceptionEvent = ((ExitWithExceptionEvent) event);
-				if(currentNode != null) {
-					while(currentNode.getMethodIndex() != exitWithExceptionEvent.getMethodIndex()) {
-						currentNode = currentNode.getParentNode();
-					}
-					currentNode.setException(exitWithExceptionEvent.throwable);
-					currentNode = currentNode.getParentNode();
-				}
-			}
-			
-			if(event instanceof InvokeStaticMethodEvent) {
-				InvokeStaticMethodEvent invokeStaticMethodEvent = ((InvokeStaticMethodEvent) event);
-				CallStackNode node = new CallStackNode();
-				node.setMethodIndex(-1);
-				node.setParentNode(currentNode);
-				node.setMethodName(invokeStaticMethodEvent.name);
-				node.setDescriptor(invokeStaticMethodEvent.descriptor);
-				node.setClassName(invokeStaticMethodEvent.className);
-				node.setArguments(Arrays.asList(invokeStaticMethodEvent.args));
-				currentNode = currentNode.addChild(node);
-			}
-			
-			if(event instanceof InvokeMethodEvent) {
-				InvokeMethodEvent invokeMethodEvent = ((InvokeMethodEvent) event);
-				CallStackNode node = new CallStackNode();
-				node.setMethodIndex(-1);
-				node.setParentNode(currentNode);
-				node.setMethodName(invokeMethodEvent.name);
-				node.setDescriptor(invokeMethodEvent.descriptor);
-				node.setClassName(invokeMethodEvent.object.getClass().getName().replace('.', '/'));
-				node.setArguments(Arrays.asList(invokeMethodEvent.args));
-				currentNode = currentNode.addChild(node);
-			}
-			
-			if(event instanceof InvokeSpecialMethodEvent) {
-				InvokeSpecialMethodEvent invokeSpecialMethodEvent = ((InvokeSpecialMethodEvent) event);
-				CallStackNode node = new CallStackNode();
-				node.setMethodIndex(-1);
-				node.setParentNode(currentNode);
-				node.setMethodName(invokeSpecialMethodEvent.name);
-				node.setDescriptor(invokeSpecialMethodEvent.descriptor);
-				node.setClassName(invokeSpecialMethodEvent.className);
-				node.setArguments(Arrays.asList(invokeSpecialMethodEvent.args));
-				currentNode = currentNode.addChild(node);
+		if(!changes.isEmpty()) {
+			new ArrayList<>(changeListeners).forEach(listener -> listener.changed(changes));
+		}
+	}
+	
+	/**
+	 * Adds any events that haven't been indexed yet to the indexes. Indexes are only built up
+	 * to date when they are used, and then only for the newly added events. A large log that
+	 * hasn't been indexed yet is indexed in parallel, in the background when it follows a buffer.
+	 */
+	private void updateIndexes() {
+		if(parallelBuild != null) {
+			if(!parallelBuild.isDone()) {
+				return;
 			}
-			
-			if(event instanceof ReturnedValueEvent) {
-				ReturnedValueEvent returnedValueEvent = ((ReturnedValueEvent) event);
-				if(currentNode != null && !currentNode.isInstrumented()) {
-					currentNode.setReturnValue(returnedValueEvent.value);
-					currentNode = currentNode.getParentNode();
-				}
+			ForkJoinTask<?> build = parallelBuild;
+			parallelBuild = null;
+			build.join();
+			indexes = parallelIndexes;
+			indexedSize = parallelSize;
+			parallelIndexes = null;
+		} else if(indexedSize == 0 && size >= PARALLEL_THRESHOLD) {
+			indexes.build(events, size, null);
+			indexedSize = size;
+			return;
+		}
+		
+		for(; indexedSize < size; indexedSize++) {
+			Event event = events.get(indexedSize);
+			for(EventIndex index:indexes.all) {
+				index.add(indexedSize, event);
 			}
 		}
+	}
+	
+	/**
+	 * Returns the number of times each line of a source file was executed, indexed by line number.
+	 */
+	public int[] getLineCounts(File sourceFile) {
+		updateIndexes();
+		return indexes.lineHistogram.getLineCounts(sourceFile);
+	}
+	
+	/**
+	 * Returns the summary of the activity of each thread, updated with all the events in the log.
+	 */
+	public Timeline getTimeline() {
+		updateIndexes();
+		return indexes.timeline;
+	}
+	
+	/**
+	 * Returns the happens-before edges between threads, updated with all the events in the log.
+	 */
+	public HappensBefore getHappensBefore() {
+		updateIndexes();
+		return indexes.happensBefore;
+	}
+	
+	/**
+	 * Returns the hold and wait times of monitors, updated with all the events in the log.
+	 */
+	public LockStats getLockStats() {
+		updateIndexes();
+		return indexes.lockStats;
+	}
+	
+	/**
+	 * Returns the offsets of the events matching a query, in ascending order. Throws an
+	 * IllegalArgumentException if the query isn't valid.
+	 */
+	public int[] search(String query) {
+		TraceQuery traceQuery = TraceQuery.parse(query);
+		updateIndexes();
+		return indexes.searchIndex.search(traceQuery);
+	}
+	
+	/**
+	 * Returns the writes to a local variable of the call running in the current thread at the
+	 * current index, or to a field of the object it was called on if there is no such local.
+	 */
+	public List<ValueChange> getValueHistory(String name) {
+		updateIndexes();
+		
+		int frame = indexes.valueHistory.getFrame(currentThread, currentIndex - 1);
+		if(frame < 0) {
+			return new ArrayList<>();
+		}
+		
+		int varIndex = indexes.valueHistory.getLocalIndex(currentThread, frame, name);
+		if(varIndex >= 0) {
+			return indexes.valueHistory.getLocalHistory(currentThread, frame, varIndex);
+		}
+		
+		Object object = indexes.valueHistory.getFrameObject(currentThread, frame);
+		if(object != null) {
+			return indexes.valueHistory.getFieldHistory(object, name);
+		}
 		
-		return rootNode.getChildren();
+		return new ArrayList<>();
 	}
-
-	private static boolean sameMethod(CallStackNode node1, CallStackNode node2) {
-		if(!Objects.equals(node1.getMethodName(), node2.getMethodName())) return false;
-		if(!Objects.equals(node1.getClassName(), node2.getClassName())) return false;
-		if(!Objects.equals(node1.getDescriptor(), node2.getDescriptor())) return false;
-		return true;
+	
+	/**
+	 * Returns the writes to a field of an object.
+	 */
+	public List<ValueChange> getFieldHistory(Object object, String name) {
+		updateIndexes();
+		return indexes.valueHistory.getFieldHistory(object, name);
+	}
+	
+	/**
+	 * Returns the offset of the last write to a variable, as in getValueHistory, before the
+	 * last event at the current index, or -1 if there isn't one. Moving the index to just after
+	 * the write and calling this again returns the write before it.
+	 */
+	public int getLastWrite(String name) {
+		List<ValueChange> history = getValueHistory(name);
+		for(int i = history.size() - 1; i >= 0; i--) {
+			if(history.get(i).getIndex() < currentIndex - 1) {
+				return history.get(i).getIndex();
+			}
+		}
+		return -1;
+	}
+	
+	public List<Thread> getThreads() {
+		updateIndexes();
+		return indexes.threadRegistry.getThreads();
+	}
+	
+	/**
+	 * Returns the summary of the events logged by a thread, or null if it hasn't logged any.
+	 */
+	public ThreadInfo getThreadInfo(Thread thread) {
+		updateIndexes();
+		return indexes.threadRegistry.getThreadInfo(thread);
 	}
 
+	public List<CallStackNode> getCallStack() {
+		updateIndexes();
+		return indexes.callTree.getCallStack(currentThread);
+	}
+	
+	/**
+	 * Returns the index of the calls made by each thread, updated with all the events in the log.
+	 */
+	public CallTree getCallTree() {
+		updateIndexes();
+		return indexes.callTree;
+	}
+	
+	/**
+	 * Returns the calls of every thread aggregated by call path, updated with all the events in the log.
+	 */
+	public FlameGraph getFlameGraph() {
+		updateIndexes();
+		return indexes.flameGraph;
+	}
+	
+	/**
+	 * Returns the System.nanoTime stamp of the event at an offset, or -1 if it wasn't stamped.
+	 */
+	public long getNanoTime(int offset) {
+		return nanoTimes.applyAsLong(offset);
+	}
+	
+	/**
+	 * Returns up to count calls of the current thread with the longest inclusive time, slowest
+	 * first. Only calls whose start and end events were stamped are included.
+	 */
+	public List<CallStackNode> getSlowestCalls(int count) {
+		updateIndexes();
+		List<CallStackNode> nodes = new ArrayList<>();
+		if(currentThread != null) {
+			for(int call:indexes.callTree.getSlowestCalls(currentThread, count)) {
+				nodes.add(indexes.callTree.getNode(currentThread, call));
+			}
+		}
+		return nodes;
+	}
+	
 	public Map<String, Object> getLocalVariables() {
 		List<Map<Integer, Object>> localsStack = new ArrayList<>();
 		List<Map<Integer, String>> localsNameStack = new ArrayList<>();
 		
-		for(Event event:getCurrentEvents()) {
-			if(event instanceof EnterMethodEvent) {
-				localsStack.add(new HashMap<>());
-				localsNameStack.add(new HashMap<>());
+		int end = Math.min(currentIndex, size);
+		for(int i = 0; i < end; i++) {
+			Event event = events.get(i);
+			if(event.thread != currentThread) {
+				continue;
 			}
 			
-			if(event instanceof ExitWithValueEvent || event instanceof ExitWithExceptionEvent) {
+			switch(event.kind) {
+			case ENTER_METHOD:
+				localsStack.add(new HashMap<>());
+				localsNameStack.add(new HashMap<>());
+				break;
+				
+			case EXIT_WITH_VALUE:
+			case EXIT_WITH_EXCEPTION:
 				localsStack.remove(localsStack.size() - 1);
 				localsNameStack.remove(localsNameStack.size() - 1);
-			}
-			
-			if(event instanceof StoreEvent) {
+				break;
+				
+			case STORE: {
 				StoreEvent storeEvent = ((StoreEvent) event);
 				getLast(localsStack).put(storeEvent.varIndex, storeEvent.value);
+				break;
 			}
 			
-			if(event instanceof SetLocalNameEvent) {
+			case SET_LOCAL_NAME: {
 				SetLocalNameEvent setLocalNameEvent = ((SetLocalNameEvent) event);
 				getLast(localsNameStack).put(setLocalNameEvent.index, setLocalNameEvent.name);
+				break;
+			}
+			
+			default:
+				break;
 			}
 		}
 		
@@ -213,8 +481,15 @@ public class EventLog {
 			
 			Set<String> forwardedMethods = snapshotCreator.getForwardedMethods();
 			
-			for(Event event:getCurrentEvents()) {
-				if(event instanceof InvokeMethodEvent) {
+			int end = Math.min(currentIndex, size);
+			for(int i = 0; i < end; i++) {
+				Event event = this.events.get(i);
+				if(event.thread != currentThread) {
+					continue;
+				}
+				
+				switch(event.kind) {
+				case INVOKE_METHOD: {
 					InvokeMethodEvent invokeMethodEvent = (InvokeMethodEvent) event;
 					if(object == invokeMethodEvent.object && snapshotCreator.isCompatibleType(invokeMethodEvent.object)) {
 						if(forwardedMethods.contains(invokeMethodEvent.name + invokeMethodEvent.descriptor)) {
@@ -226,48 +501,69 @@ public class EventLog {
 							}
 						}
 					}
+					break;
 				}
 				
-				if(event instanceof SnapshotEvent) {
+				case SNAPSHOT: {
 					SnapshotEvent snapshotEvent = (SnapshotEvent) event;
 					if(snapshotEvent.matchesObject(object)) {
 						snapshotObject = snapshotEvent.getSnapshotObject();
 					}
+					break;
+				}
+				
+				default:
+					break;
 				}
 			}
 			
 			return snapshotObject;
 		});
 	}
-
-	private List<Event> getCurrentEvents() {
-		List<Event> currentEvents = new ArrayList<>();
 	
-		for(int i = 0; i < currentIndex; i++) {
+	/**
+	 * Returns the line number of the last event in the current thread before the current index,
+	 * or -1 if there isn't one.
+	 */
+	public int getCurrentLineNumber() {
+		for(int i = Math.min(currentIndex, size) - 1; i >= 0; i--) {
 			Event event = events.get(i);
-			
 			if(event.thread == currentThread) {
-				currentEvents.add(event);
+				return event.lineNumber;
 			}
 		}
-		
-		return currentEvents;
+		return -1;
 	}
 	
 	public int getLastIndex(Thread thread) {
-		return lastIndexOf(events, e -> e.thread == thread && e instanceof ReturnValueEvent);
+		return lastIndexOf(getEvents(), e -> e.thread == thread && e.kind == Kind.RETURN_VALUE);
 	}
 
 	public void setIndex(int index) {
-		this.currentIndex = index;
+		if(index != currentIndex) {
+			this.currentIndex = index;
+			fireChange(Change.INDEX);
+		}
+	}
+	
+	public int getIndex() {
+		return currentIndex;
 	}
 	
 	public void setThread(Thread thread) {
-		this.currentThread = thread;
+		if(thread != currentThread) {
+			this.currentThread = thread;
+			fireChange(Change.THREAD);
+		}
+	}
+	
+	public Thread getThread() {
+		return currentThread;
 	}
 	
 	public void setSourceFile(File file) {
 		this.sourceFile = file;
+		fireChange(Change.SOURCE);
 	}
 	
 	public File getSourceFile() {
@@ -275,6 +571,6 @@ public class EventLog {
 	}
 	
 	public List<Event> getEvents() {
-		return events;
+		return events.subList(0, size);
 	}
 }
\ No newline at end of file
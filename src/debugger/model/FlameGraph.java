@@ -0,0 +1,321 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntToLongFunction;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeSpecialMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.Kind;
+
+/**
+ * The calls of every thread aggregated by call path, where calls to the same method
+ * (class name, method name, and descriptor) from the same path share a node. The graph is
+ * built in a single pass over the events, following the calls the same way as the call tree,
+ * so its size depends on the number of distinct paths rather than the number of calls.
+ * <p>
+ * Each event is counted in the node of the innermost call running when it was logged, and the
+ * time of each call, if its events were stamped, is added to its node when it ends.
+ */
+public class FlameGraph implements EventIndex {
+	private static final int CHILD_MAP_THRESHOLD = 8;
+
+	private static class CallKey {
+		private final String className;
+		private final String methodName;
+		private final String descriptor;
+
+		public CallKey(String className, String methodName, String descriptor) {
+			this.className = className;
+			this.methodName = methodName;
+			this.descriptor = descriptor;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof CallKey)) {
+				return false;
+			}
+			CallKey key = (CallKey) o;
+			return Objects.equals(className, key.className) && Objects.equals(methodName, key.methodName) && Objects.equals(descriptor, key.descriptor);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(className, methodName, descriptor);
+		}
+	}
+
+	public static class Node {
+		private final Node parent;
+		private final String className;
+		private final String methodName;
+		private final String descriptor;
+		private final int depth;
+		private final List<Node> children = new ArrayList<>();
+		private Map<CallKey, Node> childMap;
+
+		private long calls;
+		private long selfEvents;
+		private long totalEvents;
+		private long totalNanos;
+
+		private Node(Node parent, String className, String methodName, String descriptor) {
+			this.parent = parent;
+			this.className = className;
+			this.methodName = methodName;
+			this.descriptor = descriptor;
+			this.depth = (parent == null) ? 0 : parent.depth + 1;
+		}
+
+		/**
+		 * Returns the child for a method, adding it if there isn't one. Nodes with few children
+		 * are searched directly, which is faster than hashing for the common case.
+		 */
+		private Node getChild(String className, String methodName, String descriptor) {
+			if(childMap != null) {
+				return childMap.computeIfAbsent(new CallKey(className, methodName, descriptor), key -> addChild(className, methodName, descriptor));
+			}
+
+			for(Node child:children) {
+				if(Objects.equals(child.methodName, methodName) && Objects.equals(child.className, className) && Objects.equals(child.descriptor, descriptor)) {
+					return child;
+				}
+			}
+
+			Node child = addChild(className, methodName, descriptor);
+			if(children.size() > CHILD_MAP_THRESHOLD) {
+				childMap = new HashMap<>();
+				for(Node node:children) {
+					childMap.put(new CallKey(node.className, node.methodName, node.descriptor), node);
+				}
+			}
+			return child;
+		}
+
+		private Node addChild(String className, String methodName, String descriptor) {
+			Node child = new Node(this, className, methodName, descriptor);
+			children.add(child);
+			return child;
+		}
+
+		public Node getParent() {
+			return parent;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public String getMethodName() {
+			return methodName;
+		}
+
+		public String getDescriptor() {
+			return descriptor;
+		}
+
+		/**
+		 * Returns the depth of the node, where the root is 0 and the threads are 1.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		public String getName() {
+			if(methodName == null) {
+				return (className == null) ? "all" : className;
+			}
+			return className.replace('/', '.') + "." + methodName;
+		}
+
+		public List<Node> getChildren() {
+			return Collections.unmodifiableList(children);
+		}
+
+		/**
+		 * Returns the number of calls aggregated into this node.
+		 */
+		public long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * Returns the number of events logged while this node was the innermost call.
+		 */
+		public long getSelfEvents() {
+			return selfEvents;
+		}
+
+		/**
+		 * Returns the number of events logged by the calls of this node and the calls they made.
+		 */
+		public long getTotalEvents() {
+			return totalEvents;
+		}
+
+		/**
+		 * Returns the total time of the calls of this node that ended with stamped events.
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+	}
+
+	private static class Frame {
+		private final Node node;
+		private final int startOffset;
+		private int methodIndex;
+
+		public Frame(Node node, int startOffset, int methodIndex) {
+			this.node = node;
+			this.startOffset = startOffset;
+			this.methodIndex = methodIndex;
+		}
+	}
+
+	private final IntToLongFunction nanoTimes;
+	private final Node root = new Node(null, null, null, null);
+	private final Map<Thread, List<Frame>> callStacks = new HashMap<>();
+	private boolean totalsValid = true;
+
+	public FlameGraph(IntToLongFunction nanoTimes) {
+		this.nanoTimes = nanoTimes;
+	}
+
+	@Override
+	public void add(int offset, Event event) {
+		List<Frame> callStack = callStacks.computeIfAbsent(event.thread, thread -> {
+			List<Frame> frames = new ArrayList<>();
+			Node threadNode = root.getChild("thread " + thread.getName(), null, null);
+			threadNode.calls++;
+			frames.add(new Frame(threadNode, -1, 0));
+			return frames;
+		});
+		Frame frame = callStack.get(callStack.size() - 1);
+		totalsValid = false;
+
+		if(event.kind != Kind.ENTER_METHOD) {
+			frame.node.selfEvents++;
+		}
+
+		switch(event.kind) {
+		case ENTER_METHOD: {
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			Node node = frame.node;
+			if(frame.methodIndex < 0 && Objects.equals(node.methodName, enterMethodEvent.name) && Objects.equals(node.className, enterMethodEvent.className) && Objects.equals(node.descriptor, enterMethodEvent.descriptor)) {
+				frame.methodIndex = event.methodIndex;
+			} else {
+				frame = push(callStack, offset, event.methodIndex, enterMethodEvent.className, enterMethodEvent.name, enterMethodEvent.descriptor);
+			}
+			frame.node.selfEvents++;
+			break;
+		}
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION:
+			for(int i = callStack.size() - 1; i > 0; i--) {
+				if(callStack.get(i).methodIndex == event.methodIndex) {
+					while(callStack.size() > i) {
+						pop(callStack, offset);
+					}
+					break;
+				}
+			}
+			break;
+
+		case INVOKE_STATIC_METHOD: {
+			InvokeStaticMethodEvent invokeStaticMethodEvent = (InvokeStaticMethodEvent) event;
+			push(callStack, offset, -1, invokeStaticMethodEvent.className, invokeStaticMethodEvent.name, invokeStaticMethodEvent.descriptor);
+			break;
+		}
+
+		case INVOKE_METHOD: {
+			InvokeMethodEvent invokeMethodEvent = (InvokeMethodEvent) event;
+			push(callStack, offset, -1, invokeMethodEvent.object.getClass().getName().replace('.', '/'), invokeMethodEvent.name, invokeMethodEvent.descriptor);
+			break;
+		}
+
+		case INVOKE_SPECIAL_METHOD: {
+			InvokeSpecialMethodEvent invokeSpecialMethodEvent = (InvokeSpecialMethodEvent) event;
+			push(callStack, offset, -1, invokeSpecialMethodEvent.className, invokeSpecialMethodEvent.name, invokeSpecialMethodEvent.descriptor);
+			break;
+		}
+
+		case RETURNED_VALUE:
+			if(callStack.size() > 1 && frame.methodIndex < 0) {
+				pop(callStack, offset);
+			}
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	private static Frame push(List<Frame> callStack, int offset, int methodIndex, String className, String methodName, String descriptor) {
+		Node node = callStack.get(callStack.size() - 1).node.getChild(className, methodName, descriptor);
+		node.calls++;
+		Frame frame = new Frame(node, offset, methodIndex);
+		callStack.add(frame);
+		return frame;
+	}
+
+	private void pop(List<Frame> callStack, int endOffset) {
+		Frame frame = callStack.remove(callStack.size() - 1);
+		long startTime = nanoTimes.applyAsLong(frame.startOffset);
+		long endTime = nanoTimes.applyAsLong(endOffset);
+		if(startTime >= 0 && endTime >= 0) {
+			frame.node.totalNanos += Math.max(endTime - startTime, 0);
+		}
+	}
+
+	/**
+	 * Returns the root of the graph, whose children are the threads.
+	 */
+	public Node getRoot() {
+		if(!totalsValid) {
+			updateTotals();
+			totalsValid = true;
+		}
+		return root;
+	}
+
+	/**
+	 * Sums the events of each node and its descendants, in post-order without recursion so that
+	 * deep call paths don't overflow the stack.
+	 */
+	private void updateTotals() {
+		List<Node> order = new ArrayList<>();
+		List<Node> stack = new ArrayList<>();
+		stack.add(root);
+		while(!stack.isEmpty()) {
+			Node node = stack.remove(stack.size() - 1);
+			order.add(node);
+			stack.addAll(node.children);
+		}
+
+		root.totalNanos = 0;
+		for(int i = order.size() - 1; i >= 0; i--) {
+			Node node = order.get(i);
+			node.totalEvents = node.selfEvents;
+			for(Node child:node.children) {
+				node.totalEvents += child.totalEvents;
+			}
+			if(node.depth == 1) {
+				node.totalNanos = 0;
+				for(Node child:node.children) {
+					node.totalNanos += child.totalNanos;
+				}
+				root.totalNanos += node.totalNanos;
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package debugger.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+
+import debugger.event.Events.Event;
+import debugger.event.Events.Kind;
+import debugger.event.Events.SyncEvent;
+import debugger.util.IntList;
+
+/**
+ * The happens-before edges between threads, computed from the synchronization events. An
+ * acquire of an object, such as a monitor enter or a volatile read, gets an edge from the release
+ * of the same object with the highest sequence below its own, in another thread. Starting a
+ * thread gets an edge to the first event of the thread, and joining a thread gets an edge from
+ * its last event. Together with the order of events within each thread, the edges give the
+ * happens-before order of any two events.
+ */
+public class HappensBefore implements EventIndex {
+	public static class Edge {
+		private final int fromOffset;
+		private final int toOffset;
+
+		public Edge(int fromOffset, int toOffset) {
+			this.fromOffset = fromOffset;
+			this.toOffset = toOffset;
+		}
+
+		public int getFromOffset() {
+			return fromOffset;
+		}
+
+		public int getToOffset() {
+			return toOffset;
+		}
+
+		@Override
+		public String toString() {
+			return fromOffset + " -> " + toOffset;
+		}
+	}
+
+	/**
+	 * Identifies the object of a synchronization event, by the identity of the object and the
+	 * name of the field for volatile fields. Other events have no name, so they key on the
+	 * object only.
+	 */
+	private static class SyncKey {
+		private final Object object;
+		private final String name;
+
+		public SyncKey(Object object, String name) {
+			this.object = object;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof SyncKey)) {
+				return false;
+			}
+			SyncKey key = (SyncKey) o;
+			return key.object == object && Objects.equals(key.name, name);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object) * 31 + Objects.hashCode(name);
+		}
+	}
+
+	/**
+	 * The releases of an object, in the order they were logged.
+	 */
+	private static class Releases {
+		private final List<Long> sequences = new ArrayList<>();
+		private final IntList offsets = new IntList();
+	}
+
+	private final List<Event> events;
+	private final List<Edge> edges = new ArrayList<>();
+
+	private final Map<SyncKey, Releases> releases = new HashMap<>();
+	private final Map<Thread, Integer> lastOffsets = new IdentityHashMap<>();
+	private final Map<Thread, Integer> pendingStarts = new IdentityHashMap<>();
+	private final Map<Thread, List<Edge>> outgoingEdges = new IdentityHashMap<>();
+
+	public HappensBefore(List<Event> events) {
+		this.events = events;
+	}
+
+	@Override
+	public void add(int offset, Event event) {
+		if(!lastOffsets.containsKey(event.thread)) {
+			Integer startOffset = pendingStarts.remove(event.thread);
+			if(startOffset != null) {
+				addEdge(startOffset, offset);
+			}
+		}
+		lastOffsets.put(event.thread, offset);
+
+		if(event.kind != Kind.SYNC) {
+			return;
+		}
+
+		SyncEvent syncEvent = (SyncEvent) event;
+		if(syncEvent.type == SyncEvent.Type.THREAD_START) {
+			Thread started = (Thread) syncEvent.object;
+			if(!lastOffsets.containsKey(started)) {
+				pendingStarts.put(started, offset);
+			}
+		} else if(syncEvent.type == SyncEvent.Type.THREAD_JOIN) {
+			Integer lastOffset = lastOffsets.get(syncEvent.object);
+			if(lastOffset != null) {
+				addEdge(lastOffset, offset);
+			}
+		} else if(syncEvent.type.isRelease()) {
+			Releases objectReleases = releases.computeIfAbsent(new SyncKey(syncEvent.object, syncEvent.name), key -> new Releases());
+			objectReleases.sequences.add(syncEvent.sequence);
+			objectReleases.offsets.add(offset);
+		} else if(syncEvent.type.isAcquire()) {
+			Releases objectReleases = releases.get(new SyncKey(syncEvent.object, syncEvent.name));
+			if(objectReleases != null) {
+				addAcquire(objectReleases, syncEvent, offset);
+			}
+		}
+	}
+
+	/**
+	 * Adds an edge from the release in another thread with the highest sequence below the
+	 * acquire. Releases by the same thread are skipped, since they are already ordered by the
+	 * thread, and a call on a concurrent object logs its own release just before its acquire.
+	 * Events are logged in nearly sequence order, so the search starts from the latest release.
+	 */
+	private void addAcquire(Releases objectReleases, SyncEvent acquire, int offset) {
+		int best = -1;
+		long bestSequence = Long.MIN_VALUE;
+		for(int i = objectReleases.sequences.size() - 1; i >= 0; i--) {
+			long sequence = objectReleases.sequences.get(i);
+			if(best >= 0 && sequence < bestSequence) {
+				break;
+			}
+			if(sequence < acquire.sequence && sequence > bestSequence && events.get(objectReleases.offsets.get(i)).thread != acquire.thread) {
+				best = i;
+				bestSequence = sequence;
+			}
+		}
+
+		if(best >= 0) {
+			addEdge(objectReleases.offsets.get(best), offset);
+		}
+	}
+
+	private void addEdge(int fromOffset, int toOffset) {
+		Edge edge = new Edge(fromOffset, toOffset);
+		edges.add(edge);
+		outgoingEdges.computeIfAbsent(events.get(fromOffset).thread, thread -> new ArrayList<>()).add(edge);
+	}
+
+	/**
+	 * Returns the edges between threads, in the order of the events they lead to.
+	 */
+	public List<Edge> getEdges() {
+		return edges;
+	}
+
+	/**
+	 * Returns whether the event at one offset happens before the event at another, following
+	 * the order of each thread and the edges between threads.
+	 */
+	public boolean happensBefore(int fromOffset, int toOffset) {
+		Thread fromThread = events.get(fromOffset).thread;
+		Thread toThread = events.get(toOffset).thread;
+		if(fromThread == toThread) {
+			return fromOffset < toOffset;
+		}
+
+		Map<Thread, Integer> reached = new IdentityHashMap<>();
+		Queue<Thread> queue = new ArrayDeque<>();
+		reached.put(fromThread, fromOffset);
+		queue.add(fromThread);
+
+		while(!queue.isEmpty()) {
+			Thread thread = queue.remove();
+			int start = reached.get(thread);
+			if(thread == toThread && start <= toOffset) {
+				return true;
+			}
+
+			for(Edge edge:outgoingEdges.getOrDefault(thread, List.of())) {
+				if(edge.fromOffset < start) {
+					continue;
+				}
+				Thread target = events.get(edge.toOffset).thread;
+				Integer targetStart = reached.get(target);
+				if(targetStart == null || edge.toOffset < targetStart) {
+					reached.put(target, edge.toOffset);
+					queue.add(target);
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,144 @@
+package debugger.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+
+/**
+ * Counts how many times each source line was executed. A hit is counted each time a method call
+ * moves onto a line, so each iteration of a loop counts once for the lines it runs. The counts
+ * for each source file are kept in a primitive array indexed by line number.
+ */
+public class LineHistogram implements ThreadedEventIndex {
+	private static class Frame {
+		private final int methodIndex;
+		private final String sourcePath;
+		private int lastLine = -1;
+		
+		public Frame(int methodIndex, String sourcePath) {
+			this.methodIndex = methodIndex;
+			this.sourcePath = sourcePath;
+		}
+	}
+	
+	private final Map<String, int[]> lineCounts = new HashMap<>();
+	private final Map<String, String> sourcePaths = new HashMap<>();
+	private final Map<Thread, List<Frame>> callStacks = new HashMap<>();
+	
+	@Override
+	public void add(int offset, Event event) {
+		List<Frame> callStack = callStacks.computeIfAbsent(event.thread, thread -> new ArrayList<>());
+		
+		switch(event.kind) {
+		case ENTER_METHOD:
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			callStack.add(new Frame(event.methodIndex, getSourcePath(enterMethodEvent.className)));
+			break;
+			
+		case SET_LOCAL_NAME:
+			// Local names are logged from the end of the method, so don't have a meaningful line.
+			break;
+			
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION: {
+			int index = findFrame(callStack, event.methodIndex);
+			if(index >= 0) {
+				addHit(callStack.get(index), event.lineNumber);
+				while(callStack.size() > index) {
+					callStack.remove(callStack.size() - 1);
+				}
+			}
+			break;
+		}
+			
+		default: {
+			int index = findFrame(callStack, event.methodIndex);
+			if(index >= 0) {
+				addHit(callStack.get(index), event.lineNumber);
+			}
+			break;
+		}
+		}
+	}
+	
+	@Override
+	public LineHistogram createPart() {
+		return new LineHistogram();
+	}
+	
+	/**
+	 * Merges the call stacks of a part, and adds its hit counts to the counts of this index.
+	 */
+	@Override
+	public void merge(ThreadedEventIndex part) {
+		LineHistogram lineHistogram = (LineHistogram) part;
+		callStacks.putAll(lineHistogram.callStacks);
+		sourcePaths.putAll(lineHistogram.sourcePaths);
+		
+		for(Map.Entry<String, int[]> entry:lineHistogram.lineCounts.entrySet()) {
+			int[] partCounts = entry.getValue();
+			int[] counts = lineCounts.get(entry.getKey());
+			if(counts == null) {
+				lineCounts.put(entry.getKey(), partCounts);
+				continue;
+			}
+			if(counts.length < partCounts.length) {
+				counts = Arrays.copyOf(counts, partCounts.length);
+				lineCounts.put(entry.getKey(), counts);
+			}
+			for(int line = 0; line < partCounts.length; line++) {
+				counts[line] += partCounts[line];
+			}
+		}
+	}
+	
+	private static int findFrame(List<Frame> callStack, int methodIndex) {
+		for(int i = callStack.size() - 1; i >= 0; i--) {
+			if(callStack.get(i).methodIndex == methodIndex) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private void addHit(Frame frame, int line) {
+		if(line < 0 || line == frame.lastLine) {
+			return;
+		}
+		frame.lastLine = line;
+		
+		int[] counts = lineCounts.get(frame.sourcePath);
+		if(counts == null || line >= counts.length) {
+			counts = Arrays.copyOf(counts == null ? new int[0] : counts, Math.max(line + 1, counts == null ? 64 : counts.length * 2));
+			lineCounts.put(frame.sourcePath, counts);
+		}
+		counts[line]++;
+	}
+	
+	/**
+	 * Returns the path of the source file for a class, such as "debugger/model/QuickSort.java".
+	 */
+	private String getSourcePath(String className) {
+		return sourcePaths.computeIfAbsent(className, name -> name.replaceAll("\\$.*", "") + ".java");
+	}
+	
+	/**
+	 * Returns the hit counts indexed by line number for a source file, or an empty array if it
+	 * has no hits. The file is matched by the package path at the end of its path.
+	 */
+	public int[] getLineCounts(File file) {
+		String path = file.getPath().replace(File.separatorChar, '/');
+		for(Map.Entry<String, int[]> entry:lineCounts.entrySet()) {
+			if(path.equals(entry.getKey()) || path.endsWith("/" + entry.getKey())) {
+				return entry.getValue().clone();
+			}
+		}
+		return new int[0];
+	}
+}
@@ -0,0 +1,223 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.SyncEvent;
+
+/**
+ * Aggregates the time monitors were held and waited for, per monitor and per call site, from
+ * the timestamps of the monitor events. A call site is the method and line of the outermost
+ * enter of a monitor by a thread, and reentrant enters count towards it. Synchronized methods
+ * have no monitor request event, so only their hold time is known. An acquisition is contended
+ * if another thread held the monitor when it was requested, or entered it before the request
+ * was granted, and only contended acquisitions are charged their wait, since the time between
+ * an uncontended request and enter is just the cost of logging the request.
+ */
+public class LockStats implements EventIndex {
+	public static class Stats {
+		private int acquisitions;
+		private int contended;
+		private long totalWaitNanos;
+		private long maxWaitNanos;
+		private long totalHoldNanos;
+		private long maxHoldNanos;
+
+		private void addAcquisition(boolean isContended, long waitNanos) {
+			acquisitions++;
+			if(isContended) {
+				contended++;
+				totalWaitNanos += waitNanos;
+				maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+			}
+		}
+
+		private void addHold(long nanos) {
+			totalHoldNanos += nanos;
+			maxHoldNanos = Math.max(maxHoldNanos, nanos);
+		}
+
+		/**
+		 * Returns the number of times the monitor was entered, not counting reentrant enters.
+		 */
+		public int getAcquisitions() {
+			return acquisitions;
+		}
+
+		/**
+		 * Returns the number of acquisitions that found the monitor held by another thread.
+		 */
+		public int getContended() {
+			return contended;
+		}
+
+		public long getTotalWaitNanos() {
+			return totalWaitNanos;
+		}
+
+		public long getMaxWaitNanos() {
+			return maxWaitNanos;
+		}
+
+		public long getTotalHoldNanos() {
+			return totalHoldNanos;
+		}
+
+		public long getMaxHoldNanos() {
+			return maxHoldNanos;
+		}
+	}
+
+	private static class Frame {
+		private final int methodIndex;
+		private final String name;
+
+		public Frame(int methodIndex, String name) {
+			this.methodIndex = methodIndex;
+			this.name = name;
+		}
+	}
+
+	private static class Hold {
+		private final String callSite;
+		private final long enterNanos;
+		private int count = 1;
+
+		public Hold(String callSite, long enterNanos) {
+			this.callSite = callSite;
+			this.enterNanos = enterNanos;
+		}
+	}
+
+	private static class Request {
+		private final long nanoTime;
+		private final boolean held;
+		private final int acquisitions;
+
+		public Request(long nanoTime, boolean held, int acquisitions) {
+			this.nanoTime = nanoTime;
+			this.held = held;
+			this.acquisitions = acquisitions;
+		}
+	}
+
+	private static class ThreadLocks {
+		private final List<Frame> callStack = new ArrayList<>();
+		private final Map<Object, Request> requests = new IdentityHashMap<>();
+		private final Map<Object, Hold> holds = new IdentityHashMap<>();
+	}
+
+	private final Map<Thread, ThreadLocks> threads = new HashMap<>();
+	private final Map<Object, Stats> monitorStats = new IdentityHashMap<>();
+	private final Map<Object, Thread> owners = new IdentityHashMap<>();
+	private final Map<String, Stats> callSiteStats = new HashMap<>();
+
+	@Override
+	public void add(int offset, Event event) {
+		ThreadLocks locks = threads.computeIfAbsent(event.thread, thread -> new ThreadLocks());
+
+		switch(event.kind) {
+		case ENTER_METHOD: {
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			locks.callStack.add(new Frame(event.methodIndex, enterMethodEvent.className.replace('/', '.') + "." + enterMethodEvent.name));
+			break;
+		}
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION:
+			for(int i = locks.callStack.size() - 1; i >= 0; i--) {
+				if(locks.callStack.get(i).methodIndex == event.methodIndex) {
+					locks.callStack.subList(i, locks.callStack.size()).clear();
+					break;
+				}
+			}
+			break;
+
+		case SYNC:
+			addSync(locks, (SyncEvent) event);
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	private void addSync(ThreadLocks locks, SyncEvent event) {
+		switch(event.type) {
+		case MONITOR_REQUEST:
+			if(!locks.holds.containsKey(event.object)) {
+				Thread owner = owners.get(event.object);
+				boolean held = owner != null && owner != event.thread;
+				locks.requests.put(event.object, new Request(event.nanoTime, held, getMonitorStats(event.object).acquisitions));
+			}
+			break;
+
+		case MONITOR_ENTER: {
+			Hold hold = locks.holds.get(event.object);
+			if(hold != null) {
+				hold.count++;
+				break;
+			}
+
+			String callSite = getCallSite(locks, event);
+			Stats stats = getMonitorStats(event.object);
+			Request request = locks.requests.remove(event.object);
+			boolean isContended = request != null && (request.held || stats.acquisitions != request.acquisitions);
+			long waitNanos = (request == null) ? 0 : Math.max(event.nanoTime - request.nanoTime, 0);
+			stats.addAcquisition(isContended, waitNanos);
+			getCallSiteStats(callSite).addAcquisition(isContended, waitNanos);
+			locks.holds.put(event.object, new Hold(callSite, event.nanoTime));
+			owners.put(event.object, event.thread);
+			break;
+		}
+
+		case MONITOR_EXIT: {
+			Hold hold = locks.holds.get(event.object);
+			if(hold != null && --hold.count == 0) {
+				locks.holds.remove(event.object);
+				owners.remove(event.object);
+				long holdNanos = Math.max(event.nanoTime - hold.enterNanos, 0);
+				getMonitorStats(event.object).addHold(holdNanos);
+				getCallSiteStats(hold.callSite).addHold(holdNanos);
+			}
+			break;
+		}
+
+		default:
+			break;
+		}
+	}
+
+	private static String getCallSite(ThreadLocks locks, SyncEvent event) {
+		String method = locks.callStack.isEmpty() ? "?" : locks.callStack.get(locks.callStack.size() - 1).name;
+		return method + ":" + event.lineNumber;
+	}
+
+	private Stats getMonitorStats(Object monitor) {
+		return monitorStats.computeIfAbsent(monitor, key -> new Stats());
+	}
+
+	private Stats getCallSiteStats(String callSite) {
+		return callSiteStats.computeIfAbsent(callSite, key -> new Stats());
+	}
+
+	/**
+	 * Returns the stats of each monitor, keyed by the identity of the monitor.
+	 */
+	public Map<Object, Stats> getMonitorStats() {
+		return Collections.unmodifiableMap(monitorStats);
+	}
+
+	/**
+	 * Returns the stats of each call site, keyed by "class.method:line".
+	 */
+	public Map<String, Stats> getCallSiteStats() {
+		return Collections.unmodifiableMap(callSiteStats);
+	}
+}
@@ -0,0 +1,151 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import debugger.event.Events.Event;
+import debugger.model.EventLog.IndexProgressListener;
+import debugger.util.IntList;
+
+/**
+ * Builds empty indexes over a range of events with a fork/join pool. The offsets of the events
+ * are first split by thread, with a task for each segment of the events. Each threaded index is
+ * then built with a task for each thread, into a part that only that task writes to, and each
+ * other index is built over all the events by a task of its own. The events of one thread are
+ * not split into segments, since the call stacks at the start of a segment aren't known until
+ * the segments before it are indexed, so a trace of a single thread builds each threaded index
+ * on one core. Once all the tasks have joined, the parts are merged into their indexes on the
+ * calling thread, so no task takes a lock or writes to state shared with another task.
+ */
+class ParallelIndexBuilder {
+	private static final int SEGMENT_SIZE = 1 << 16;
+	private static final int PROGRESS_INTERVAL = 1 << 12;
+
+	/**
+	 * Splits the offsets of a range of events by thread, in the order the threads first appear.
+	 */
+	private class SplitTask extends RecursiveTask<Map<Thread, IntList>> {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		public SplitTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Map<Thread, IntList> compute() {
+			if(to - from <= segmentSize) {
+				Map<Thread, IntList> threadOffsets = new LinkedHashMap<>();
+				for(int offset = from; offset < to; offset++) {
+					threadOffsets.computeIfAbsent(events.get(offset).thread, thread -> new IntList()).add(offset);
+				}
+				return threadOffsets;
+			}
+
+			int middle = (from + to) >>> 1;
+			SplitTask first = new SplitTask(from, middle);
+			first.fork();
+			Map<Thread, IntList> second = new SplitTask(middle, to).compute();
+			Map<Thread, IntList> threadOffsets = first.join();
+
+			second.forEach((thread, offsets) -> {
+				IntList firstOffsets = threadOffsets.get(thread);
+				if(firstOffsets == null) {
+					threadOffsets.put(thread, offsets);
+				} else {
+					firstOffsets.addAll(offsets);
+				}
+			});
+			return threadOffsets;
+		}
+	}
+
+	private final List<Event> events;
+	private final ForkJoinPool pool;
+	private final int segmentSize;
+	private final IndexProgressListener progressListener;
+
+	private final AtomicLong indexed = new AtomicLong();
+	private long total;
+
+	public ParallelIndexBuilder(List<Event> events, IndexProgressListener progressListener) {
+		this(events, ForkJoinPool.commonPool(), SEGMENT_SIZE, progressListener);
+	}
+
+	ParallelIndexBuilder(List<Event> events, ForkJoinPool pool, int segmentSize, IndexProgressListener progressListener) {
+		this.events = events;
+		this.pool = pool;
+		this.segmentSize = Math.max(segmentSize, 1);
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * Adds the events in [0, size) to the indexes, which must be empty. Progress is reported
+	 * from the pool threads as the number of events added to an index, out of size times the
+	 * number of indexes.
+	 */
+	public void build(int size, List<ThreadedEventIndex> threadedIndexes, List<EventIndex> otherIndexes) {
+		total = (long) size * (threadedIndexes.size() + otherIndexes.size());
+		Map<Thread, IntList> threadOffsets = pool.invoke(new SplitTask(0, size));
+
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		List<List<ThreadedEventIndex>> parts = new ArrayList<>();
+		for(ThreadedEventIndex index:threadedIndexes) {
+			List<ThreadedEventIndex> indexParts = new ArrayList<>();
+			for(IntList offsets:threadOffsets.values()) {
+				ThreadedEventIndex part = index.createPart();
+				indexParts.add(part);
+				tasks.add(ForkJoinTask.adapt(() -> addEvents(part, offsets)));
+			}
+			parts.add(indexParts);
+		}
+		for(EventIndex index:otherIndexes) {
+			tasks.add(ForkJoinTask.adapt(() -> addEvents(index, size)));
+		}
+
+		pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+		for(int i = 0; i < threadedIndexes.size(); i++) {
+			for(ThreadedEventIndex part:parts.get(i)) {
+				threadedIndexes.get(i).merge(part);
+			}
+		}
+	}
+
+	private void addEvents(EventIndex index, IntList offsets) {
+		for(int i = 0; i < offsets.size(); i++) {
+			int offset = offsets.get(i);
+			index.add(offset, events.get(offset));
+			if((i + 1) % PROGRESS_INTERVAL == 0) {
+				reportProgress(PROGRESS_INTERVAL);
+			}
+		}
+		reportProgress(offsets.size() % PROGRESS_INTERVAL);
+	}
+
+	private void addEvents(EventIndex index, int size) {
+		for(int offset = 0; offset < size; offset++) {
+			index.add(offset, events.get(offset));
+			if((offset + 1) % PROGRESS_INTERVAL == 0) {
+				reportProgress(PROGRESS_INTERVAL);
+			}
+		}
+		reportProgress(size % PROGRESS_INTERVAL);
+	}
+
+	private void reportProgress(int added) {
+		long done = indexed.addAndGet(added);
+		if(progressListener != null && added > 0) {
+			progressListener.progress(done, total);
+		}
+	}
+}
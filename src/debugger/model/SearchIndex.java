@@ -0,0 +1,324 @@
+package debugger.model;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import debugger.event.EventLogger;
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.ExitWithValueEvent;
+import debugger.event.Events.InvokeMethodEvent;
+import debugger.event.Events.InvokeSpecialMethodEvent;
+import debugger.event.Events.InvokeStaticMethodEvent;
+import debugger.event.Events.Kind;
+import debugger.event.Events.PutFieldEvent;
+import debugger.event.Events.ReturnedValueEvent;
+import debugger.event.Events.SetLocalNameEvent;
+import debugger.event.Events.StoreArrayEvent;
+import debugger.event.Events.StoreEvent;
+import debugger.event.SnapshotCreator;
+import debugger.event.SnapshotEvent;
+import debugger.instrumentation.util.AsmUtil;
+import debugger.util.IntList;
+
+/**
+ * Inverted indexes from method, field, and local names, and from value hashes, to the offsets
+ * of the events that mention them. A query reads only the offsets for its name or value, and
+ * then checks the values of those events.
+ * <p>
+ * Collections can change after they are logged, so the index keeps replicas of them from their
+ * snapshots and forwarded calls, and remembers which logged values were empty at the time.
+ */
+public class SearchIndex implements EventIndex {
+	private static class Frame {
+		private final int methodIndex;
+		private final String name;
+		private final Map<Integer, String> localNames = new HashMap<>();
+		private String pendingInvoke;
+
+		public Frame(int methodIndex, String name) {
+			this.methodIndex = methodIndex;
+			this.name = name;
+		}
+	}
+
+	private final List<Event> events;
+
+	private final Map<String, IntList> calls = new HashMap<>();
+	private final Map<String, IntList> returns = new HashMap<>();
+	private final Map<String, IntList> fields = new HashMap<>();
+	private final Map<String, IntList> locals = new HashMap<>();
+	private final Map<Integer, IntList> values = new HashMap<>();
+
+	private final Map<Thread, List<Frame>> callStacks = new HashMap<>();
+
+	private final Map<Object, Object> replicas = new IdentityHashMap<>();
+	private final IntList emptyOffsets = new IntList();
+	private long[] emptyMasks = new long[16];
+
+	/**
+	 * Creates an index of the events, which are later added in order with add.
+	 */
+	public SearchIndex(List<Event> events) {
+		this.events = events;
+	}
+
+	@Override
+	public void add(int offset, Event event) {
+		List<Frame> callStack = callStacks.computeIfAbsent(event.thread, thread -> new ArrayList<>());
+		Frame frame = callStack.isEmpty() ? null : callStack.get(callStack.size() - 1);
+
+		switch(event.kind) {
+		case ENTER_METHOD: {
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			if(frame != null && enterMethodEvent.name.equals(frame.pendingInvoke)) {
+				frame.pendingInvoke = null;
+			} else {
+				addOffset(calls, enterMethodEvent.name, offset);
+			}
+			callStack.add(new Frame(event.methodIndex, enterMethodEvent.name));
+			addEmptyMask(enterMethodEvent.args, offset);
+			break;
+		}
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION: {
+			for(int i = callStack.size() - 1; i >= 0; i--) {
+				if(callStack.get(i).methodIndex == event.methodIndex) {
+					if(event.kind == Kind.EXIT_WITH_VALUE) {
+						addOffset(returns, callStack.get(i).name, offset);
+						addValue(((ExitWithValueEvent) event).value, offset);
+					}
+					callStack.subList(i, callStack.size()).clear();
+					break;
+				}
+			}
+			break;
+		}
+
+		case INVOKE_METHOD: {
+			InvokeMethodEvent invokeMethodEvent = (InvokeMethodEvent) event;
+			addInvoke(frame, invokeMethodEvent.name, offset);
+			addEmptyMask(invokeMethodEvent.args, offset);
+			forwardToReplica(invokeMethodEvent);
+			break;
+		}
+
+		case INVOKE_SPECIAL_METHOD:
+			addInvoke(frame, ((InvokeSpecialMethodEvent) event).name, offset);
+			addEmptyMask(((InvokeSpecialMethodEvent) event).args, offset);
+			break;
+
+		case INVOKE_STATIC_METHOD:
+			addInvoke(frame, ((InvokeStaticMethodEvent) event).name, offset);
+			addEmptyMask(((InvokeStaticMethodEvent) event).args, offset);
+			break;
+
+		case SNAPSHOT: {
+			SnapshotEvent snapshotEvent = (SnapshotEvent) event;
+			replicas.put(snapshotEvent.getObject(), snapshotEvent.getSnapshotObject());
+			break;
+		}
+
+		case RETURNED_VALUE: {
+			if(frame != null && frame.pendingInvoke != null) {
+				addOffset(returns, frame.pendingInvoke, offset);
+				addValue(((ReturnedValueEvent) event).value, offset);
+				frame.pendingInvoke = null;
+			}
+			break;
+		}
+
+		case SET_LOCAL_NAME: {
+			SetLocalNameEvent setLocalNameEvent = (SetLocalNameEvent) event;
+			if(frame != null) {
+				frame.localNames.put(setLocalNameEvent.index, setLocalNameEvent.name);
+			}
+			break;
+		}
+
+		case STORE: {
+			StoreEvent storeEvent = (StoreEvent) event;
+			String name = (frame == null) ? null : frame.localNames.get(storeEvent.varIndex);
+			addOffset(locals, (name == null) ? "local-" + storeEvent.varIndex : name, offset);
+			addValue(storeEvent.value, offset);
+			break;
+		}
+
+		case PUT_FIELD: {
+			PutFieldEvent putFieldEvent = (PutFieldEvent) event;
+			addOffset(fields, putFieldEvent.name, offset);
+			addValue(putFieldEvent.value, offset);
+			break;
+		}
+
+		case STORE_ARRAY:
+			addValue(((StoreArrayEvent) event).value, offset);
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Indexes a call from an instrumented method. If the called method is also instrumented,
+	 * its enter event will be part of the same call.
+	 */
+	private void addInvoke(Frame frame, String name, int offset) {
+		addOffset(calls, name, offset);
+		if(frame != null) {
+			frame.pendingInvoke = name;
+		}
+	}
+
+	private static <K> void addOffset(Map<K, IntList> index, K key, int offset) {
+		index.computeIfAbsent(key, k -> new IntList()).add(offset);
+	}
+
+	private void addValue(Object value, int offset) {
+		boolean wasEmpty = wasEmpty(value);
+		addOffset(values, TraceQuery.valueHash(value, wasEmpty), offset);
+		if(wasEmpty) {
+			putEmptyMask(offset, 1);
+		}
+	}
+
+	/**
+	 * Remembers which arguments of a call were empty collections, one bit per argument.
+	 */
+	private void addEmptyMask(Object[] args, int offset) {
+		long mask = 0;
+		for(int i = 0; i < args.length && i < Long.SIZE; i++) {
+			if(wasEmpty(args[i])) {
+				mask |= 1L << i;
+			}
+		}
+		if(mask != 0) {
+			putEmptyMask(offset, mask);
+		}
+	}
+
+	/**
+	 * Stores the empty mask of an event. Events are added in ascending order of offset, so the
+	 * offsets stay sorted for getEmptyMask.
+	 */
+	private void putEmptyMask(int offset, long mask) {
+		int size = emptyOffsets.size();
+		if(size > 0 && emptyOffsets.getLast() == offset) {
+			emptyMasks[size - 1] |= mask;
+			return;
+		}
+		if(size == emptyMasks.length) {
+			emptyMasks = Arrays.copyOf(emptyMasks, size * 2);
+		}
+		emptyMasks[size] = mask;
+		emptyOffsets.add(offset);
+	}
+
+	private long getEmptyMask(int offset) {
+		int index = emptyOffsets.lowerBound(offset);
+		return (index < emptyOffsets.size() && emptyOffsets.get(index) == offset) ? emptyMasks[index] : 0;
+	}
+
+	/**
+	 * Returns whether a value is a collection whose replica is empty at this point of the log.
+	 * Collections without a snapshot are never known to be empty.
+	 */
+	private boolean wasEmpty(Object value) {
+		if(!TraceQuery.isMutable(value)) {
+			return false;
+		}
+		Object replica = replicas.get(value);
+		return replica != null && TraceQuery.isEmpty(replica);
+	}
+
+	/**
+	 * Replays a call that changes a collection on its replica, as EventLog.getObjectSnapshot does.
+	 */
+	private void forwardToReplica(InvokeMethodEvent event) {
+		Object replica = replicas.get(event.object);
+		if(replica == null) {
+			return;
+		}
+		for(SnapshotCreator snapshotCreator:EventLogger.snapshotCreators) {
+			if(snapshotCreator.isCompatibleType(event.object) && snapshotCreator.getForwardedMethods().contains(event.name + event.descriptor)) {
+				try {
+					Method method = AsmUtil.getMethod(replica.getClass(), event.name, event.descriptor);
+					method.invoke(replica, event.args);
+				} catch(ReflectiveOperationException | RuntimeException e) {
+					replicas.remove(event.object);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the offsets of the events matching a query, in ascending order.
+	 */
+	public int[] search(TraceQuery query) {
+		IntList offsets = getOffsets(query);
+		if(offsets == null) {
+			return new int[0];
+		}
+
+		if(!query.hasValue()) {
+			return offsets.toArray();
+		}
+
+		IntList matches = new IntList();
+		for(int i = 0; i < offsets.size(); i++) {
+			int offset = offsets.get(i);
+			if(matchesValue(query, events.get(offset), getEmptyMask(offset))) {
+				matches.add(offset);
+			}
+		}
+		return matches.toArray();
+	}
+
+	private IntList getOffsets(TraceQuery query) {
+		switch(query.getType()) {
+		case CALL: return calls.get(query.getName());
+		case RETURN: return returns.get(query.getName());
+		case FIELD: return fields.get(query.getName());
+		case LOCAL: return locals.get(query.getName());
+		case VALUE: return values.get(query.getValueHash());
+		default: return null;
+		}
+	}
+
+	/**
+	 * Returns whether the value of an event matches the query. Calls match if any argument matches.
+	 * The bits of emptyMask are set for the values that were empty collections when logged.
+	 */
+	private static boolean matchesValue(TraceQuery query, Event event, long emptyMask) {
+		boolean wasEmpty = (emptyMask & 1) != 0;
+		switch(event.kind) {
+		case STORE: return query.matches(((StoreEvent) event).value, wasEmpty);
+		case PUT_FIELD: return query.matches(((PutFieldEvent) event).value, wasEmpty);
+		case STORE_ARRAY: return query.matches(((StoreArrayEvent) event).value, wasEmpty);
+		case EXIT_WITH_VALUE: return query.matches(((ExitWithValueEvent) event).value, wasEmpty);
+		case RETURNED_VALUE: return query.matches(((ReturnedValueEvent) event).value, wasEmpty);
+		case ENTER_METHOD: return matchesAny(query, ((EnterMethodEvent) event).args, emptyMask);
+		case INVOKE_METHOD: return matchesAny(query, ((InvokeMethodEvent) event).args, emptyMask);
+		case INVOKE_SPECIAL_METHOD: return matchesAny(query, ((InvokeSpecialMethodEvent) event).args, emptyMask);
+		case INVOKE_STATIC_METHOD: return matchesAny(query, ((InvokeStaticMethodEvent) event).args, emptyMask);
+		default: return false;
+		}
+	}
+
+	private static boolean matchesAny(TraceQuery query, Object[] args, long emptyMask) {
+		for(int i = 0; i < args.length; i++) {
+			if(query.matches(args[i], i < Long.SIZE && (emptyMask & (1L << i)) != 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,114 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+
+/**
+ * An index of the threads that logged events, with a summary of the events of each thread.
+ */
+public class ThreadRegistry implements EventIndex {
+	/**
+	 * A summary of the events logged by a thread.
+	 */
+	public static class ThreadInfo {
+		private final Thread thread;
+		private final List<String> methods = new ArrayList<>();
+		private final List<Integer> methodIndexes = new ArrayList<>();
+		private int eventCount;
+		private int firstOffset = -1;
+		private int lastOffset = -1;
+
+		public ThreadInfo(Thread thread) {
+			this.thread = thread;
+		}
+
+		public Thread getThread() {
+			return thread;
+		}
+
+		public int getEventCount() {
+			return eventCount;
+		}
+
+		/**
+		 * Returns the offset of the first event in the thread.
+		 */
+		public int getFirstOffset() {
+			return firstOffset;
+		}
+
+		/**
+		 * Returns the offset of the last event in the thread.
+		 */
+		public int getLastOffset() {
+			return lastOffset;
+		}
+
+		/**
+		 * Returns the innermost instrumented method being run after the last event, as
+		 * className.methodName, or null if the thread isn't in an instrumented method.
+		 */
+		public String getCurrentMethod() {
+			return methods.isEmpty() ? null : methods.get(methods.size() - 1);
+		}
+
+		private void exit(int methodIndex) {
+			int index = methodIndexes.lastIndexOf(methodIndex);
+			if(index >= 0) {
+				methods.subList(index, methods.size()).clear();
+				methodIndexes.subList(index, methodIndexes.size()).clear();
+			}
+		}
+	}
+
+	private final Map<Thread, ThreadInfo> threads = new LinkedHashMap<>();
+
+	@Override
+	public void add(int offset, Event event) {
+		ThreadInfo info = threads.computeIfAbsent(event.thread, ThreadInfo::new);
+
+		info.eventCount++;
+		info.lastOffset = offset;
+		if(info.firstOffset < 0) {
+			info.firstOffset = offset;
+		}
+
+		switch(event.kind) {
+		case ENTER_METHOD:
+			EnterMethodEvent enterMethodEvent = (EnterMethodEvent) event;
+			info.methods.add(enterMethodEvent.className + "." + enterMethodEvent.name);
+			info.methodIndexes.add(event.methodIndex);
+			break;
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION:
+			info.exit(event.methodIndex);
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Returns the threads that logged events, sorted by name.
+	 */
+	public List<Thread> getThreads() {
+		List<Thread> threads = new ArrayList<>(this.threads.keySet());
+		threads.sort(Comparator.comparing(Thread::getName));
+		return threads;
+	}
+
+	/**
+	 * Returns the summary of a thread, or null if it hasn't logged any events.
+	 */
+	public ThreadInfo getThreadInfo(Thread thread) {
+		return threads.get(thread);
+	}
+}
@@ -0,0 +1,19 @@
+package debugger.model;
+
+/**
+ * An event index that keeps the state of each thread apart, so that the events of different
+ * threads can be added to separate parts of the index at the same time, and the parts merged
+ * into the index afterwards.
+ */
+interface ThreadedEventIndex extends EventIndex {
+	/**
+	 * Creates an empty index of the same kind, over the same events.
+	 */
+	public ThreadedEventIndex createPart();
+
+	/**
+	 * Merges a part created by createPart into this index. The part must only have events of
+	 * threads that this index has no events of.
+	 */
+	public void merge(ThreadedEventIndex part);
+}
@@ -0,0 +1,143 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import debugger.event.Events.Event;
+import debugger.util.IntList;
+
+/**
+ * A multi-resolution summary of the activity of each thread over the event log. The log is
+ * divided into buckets of events by offset, and each level of the summary has buckets that are
+ * BRANCH times wider than the level below it. Each bucket holds the number of events logged by a
+ * thread, and the minimum and maximum call depth of the thread during the bucket, so that any
+ * range of the log can be summarized from a few buckets of the right level. Only the buckets a
+ * thread has events in are stored, so a thread that logs few events takes little memory however
+ * long the log is.
+ */
+public class Timeline implements EventIndex {
+	private static final int BASE_BITS = 6;
+	private static final int BRANCH_BITS = 3;
+	private static final int LEVELS = 8;
+
+	/**
+	 * The non-empty buckets of a level, in ascending order of bucket. Events are added in order
+	 * of offset, so a bucket is either the last one or a new one after it.
+	 */
+	private static class Level {
+		private final IntList buckets = new IntList();
+		private final IntList counts = new IntList();
+		private final IntList minDepths = new IntList();
+		private final IntList maxDepths = new IntList();
+
+		private void add(int bucket, int depth) {
+			if(buckets.isEmpty() || buckets.getLast() != bucket) {
+				buckets.add(bucket);
+				counts.add(1);
+				minDepths.add(depth);
+				maxDepths.add(depth);
+				return;
+			}
+
+			int index = buckets.size() - 1;
+			counts.set(index, counts.get(index) + 1);
+			minDepths.set(index, Math.min(minDepths.get(index), depth));
+			maxDepths.set(index, Math.max(maxDepths.get(index), depth));
+		}
+	}
+
+	private static class ThreadTimeline {
+		private final List<Level> levels = new ArrayList<>();
+		private int depth;
+		private int maxDepth;
+
+		public ThreadTimeline() {
+			for(int i = 0; i < LEVELS; i++) {
+				levels.add(new Level());
+			}
+		}
+	}
+
+	private final Map<Thread, ThreadTimeline> threads = new HashMap<>();
+
+	@Override
+	public void add(int offset, Event event) {
+		ThreadTimeline timeline = threads.computeIfAbsent(event.thread, thread -> new ThreadTimeline());
+
+		switch(event.kind) {
+		case ENTER_METHOD:
+			timeline.depth++;
+			timeline.maxDepth = Math.max(timeline.maxDepth, timeline.depth);
+			break;
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION:
+			timeline.depth = Math.max(timeline.depth - 1, 0);
+			break;
+
+		default:
+			break;
+		}
+
+		int bucket = offset >> BASE_BITS;
+		for(Level level:timeline.levels) {
+			level.add(bucket, timeline.depth);
+			bucket >>= BRANCH_BITS;
+		}
+	}
+
+	/**
+	 * Returns the maximum call depth reached by a thread.
+	 */
+	public int getMaxDepth(Thread thread) {
+		ThreadTimeline timeline = threads.get(thread);
+		return (timeline == null) ? 0 : timeline.maxDepth;
+	}
+
+	/**
+	 * Summarizes the events of a thread in [from, to) into counts.length columns of equal width.
+	 * Each column gets the number of events in the thread, and the minimum and maximum call depth
+	 * of the thread, or a minimum depth of Integer.MAX_VALUE if there were no events. Columns are
+	 * aligned to the buckets of the finest level that is no wider than a column, so the edges of
+	 * each column are approximate by up to a bucket.
+	 */
+	public void summarize(Thread thread, int from, int to, int[] counts, int[] minDepths, int[] maxDepths) {
+		int columns = counts.length;
+		for(int column = 0; column < columns; column++) {
+			counts[column] = 0;
+			minDepths[column] = Integer.MAX_VALUE;
+			maxDepths[column] = 0;
+		}
+
+		ThreadTimeline timeline = threads.get(thread);
+		if(timeline == null || to <= from || columns == 0) {
+			return;
+		}
+
+		double columnWidth = (double) (to - from) / columns;
+
+		int levelIndex = 0;
+		int bucketBits = BASE_BITS;
+		while(levelIndex < LEVELS - 1 && (1 << (bucketBits + BRANCH_BITS)) <= columnWidth) {
+			levelIndex++;
+			bucketBits += BRANCH_BITS;
+		}
+
+		Level level = timeline.levels.get(levelIndex);
+		int lastBucket = (to - 1) >> bucketBits;
+		for(int index = level.buckets.lowerBound(from >> bucketBits); index < level.buckets.size(); index++) {
+			int bucket = level.buckets.get(index);
+			if(bucket > lastBucket) {
+				break;
+			}
+
+			long bucketStart = Math.max((long) bucket << bucketBits, from);
+			int column = (int) Math.min((bucketStart - from) / columnWidth, columns - 1);
+			counts[column] += level.counts.get(index);
+			minDepths[column] = Math.min(minDepths[column], level.minDepths.get(index));
+			maxDepths[column] = Math.max(maxDepths[column], level.maxDepths.get(index));
+		}
+	}
+}
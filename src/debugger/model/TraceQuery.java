@@ -0,0 +1,218 @@
+package debugger.model;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A query for events in the event log, of the form "kind [name] [op value]", such as:
+ * <pre>
+ * field pivot
+ * return sort = []
+ * local x &gt; 5
+ * call sort
+ * value = "abc"
+ * </pre>
+ * The kinds are call, return, field, local, and value. The ops are =, !=, &lt;, &lt;=, &gt;, and &gt;=,
+ * and the value can be a number, a quoted string, true, false, null, or [] for an empty collection.
+ * Collections and maps can change after they are logged, so whether they were empty is passed
+ * in from the state recorded when they were logged, rather than read from the live object.
+ */
+public class TraceQuery {
+	public enum Type {
+		CALL,
+		RETURN,
+		FIELD,
+		LOCAL,
+		VALUE
+	}
+
+	/**
+	 * The value of an empty collection, array, map, or string.
+	 */
+	private static final Object EMPTY = new Object();
+	private static final int EMPTY_HASH = 1;
+
+	private static final Pattern QUERY_PATTERN = Pattern.compile(
+		"\\s*(\\w+)(?:\\s+([\\w$<>]+))?(?:\\s*(=|!=|<=|>=|<|>)\\s*(.+?))?\\s*"
+	);
+
+	private final Type type;
+	private final String name;
+	private final String op;
+	private final Object value;
+
+	private TraceQuery(Type type, String name, String op, Object value) {
+		this.type = type;
+		this.name = name;
+		this.op = op;
+		this.value = value;
+	}
+
+	/**
+	 * Parses a query, throwing an IllegalArgumentException if it isn't valid.
+	 */
+	public static TraceQuery parse(String query) {
+		Matcher matcher = QUERY_PATTERN.matcher(query);
+		if(!matcher.matches()) {
+			throw new IllegalArgumentException("Invalid query: " + query);
+		}
+
+		Type type;
+		try {
+			type = Type.valueOf(matcher.group(1).toUpperCase());
+		} catch(IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown query type: " + matcher.group(1));
+		}
+
+		String name = matcher.group(2);
+		String op = matcher.group(3);
+
+		if(type == Type.VALUE && name != null) {
+			throw new IllegalArgumentException("Value queries don't have a name: " + query);
+		}
+		if(type != Type.VALUE && name == null) {
+			throw new IllegalArgumentException("Missing name: " + query);
+		}
+		if(type == Type.VALUE && !"=".equals(op)) {
+			throw new IllegalArgumentException("Value queries must use '=': " + query);
+		}
+
+		Object value = (op == null) ? null : parseValue(matcher.group(4));
+		if(op != null && !op.equals("=") && !op.equals("!=") && !(value instanceof Double)) {
+			throw new IllegalArgumentException("Comparison with non-numeric value: " + query);
+		}
+
+		return new TraceQuery(type, name, op, value);
+	}
+
+	private static Object parseValue(String value) {
+		if(value.equals("null")) {
+			return null;
+		} else if(value.equals("true") || value.equals("false")) {
+			return Boolean.valueOf(value);
+		} else if(value.equals("[]")) {
+			return EMPTY;
+		} else if(value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+			return value.substring(1, value.length() - 1);
+		}
+
+		try {
+			return Double.valueOf(value);
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value: " + value);
+		}
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns whether the query has a value to compare with.
+	 */
+	public boolean hasValue() {
+		return op != null;
+	}
+
+	/**
+	 * Returns the hash of the value compared with, as used by the value index.
+	 */
+	int getValueHash() {
+		return (value == EMPTY) ? EMPTY_HASH : valueHash(value, false);
+	}
+
+	/**
+	 * Returns a hash of a value that is the same for values that can match the same query
+	 * value, so numbers hash by their value regardless of type, and empty values hash together.
+	 * Other objects hash by identity, since they may change after they are logged, and
+	 * collections and maps hash as empty only if they were empty when they were logged.
+	 */
+	static int valueHash(Object value, boolean wasEmpty) {
+		if(isMutable(value)) {
+			return wasEmpty ? EMPTY_HASH : System.identityHashCode(value);
+		} else if(value == null) {
+			return 0;
+		} else if(value instanceof Number) {
+			return Long.hashCode((long) ((Number) value).doubleValue());
+		} else if(value instanceof String || value instanceof Character) {
+			return isEmpty(value) ? EMPTY_HASH : value.toString().hashCode();
+		} else if(value instanceof Boolean) {
+			return value.hashCode();
+		} else if(isEmpty(value)) {
+			return EMPTY_HASH;
+		} else {
+			return System.identityHashCode(value);
+		}
+	}
+
+	/**
+	 * Returns whether a value matches the op and value of the query, where wasEmpty is whether
+	 * a collection or map was empty when the value was logged.
+	 */
+	public boolean matches(Object value, boolean wasEmpty) {
+		switch(op) {
+		case "=": return valueEquals(value, wasEmpty);
+		case "!=": return !valueEquals(value, wasEmpty);
+		case "<": return compare(value) != null && compare(value) < 0;
+		case "<=": return compare(value) != null && compare(value) <= 0;
+		case ">": return compare(value) != null && compare(value) > 0;
+		case ">=": return compare(value) != null && compare(value) >= 0;
+		default: return false;
+		}
+	}
+
+	private boolean valueEquals(Object value, boolean wasEmpty) {
+		if(this.value == EMPTY) {
+			return isMutable(value) ? wasEmpty : isEmpty(value);
+		} else if(this.value instanceof Double) {
+			Double number = toNumber(value);
+			return number != null && number.equals(this.value);
+		} else if(this.value instanceof String) {
+			return (value instanceof String || value instanceof Character) && this.value.equals(value.toString());
+		} else {
+			return Objects.equals(this.value, value);
+		}
+	}
+
+	/**
+	 * Returns whether a value is a collection or map, whose contents can change after it is logged.
+	 */
+	static boolean isMutable(Object value) {
+		return value instanceof Collection || value instanceof Map;
+	}
+
+	static boolean isEmpty(Object value) {
+		if(value instanceof Collection) {
+			return ((Collection<?>) value).isEmpty();
+		} else if(value instanceof Map) {
+			return ((Map<?, ?>) value).isEmpty();
+		} else if(value instanceof String) {
+			return ((String) value).isEmpty();
+		} else if(value != null && value.getClass().isArray()) {
+			return Array.getLength(value) == 0;
+		}
+		return false;
+	}
+
+	private Integer compare(Object value) {
+		Double number = toNumber(value);
+		return (number == null) ? null : number.compareTo((Double) this.value);
+	}
+
+	private static Double toNumber(Object value) {
+		if(value instanceof Number) {
+			return ((Number) value).doubleValue();
+		} else if(value instanceof Character) {
+			return (double) (Character) value;
+		}
+		return null;
+	}
+}
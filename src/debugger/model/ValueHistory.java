@@ -0,0 +1,231 @@
+package debugger.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import debugger.event.Events.Event;
+import debugger.event.Events.PutFieldEvent;
+import debugger.event.Events.SetLocalNameEvent;
+import debugger.event.Events.SetThisEvent;
+import debugger.event.Events.StoreEvent;
+import debugger.util.IntList;
+
+/**
+ * An index of the offsets of the writes to each local variable of each call, and to each field
+ * of each object, so that the history of a variable can be read without scanning the log.
+ */
+public class ValueHistory implements ThreadedEventIndex {
+	/**
+	 * A value written to a variable, and the offset of the event that wrote it.
+	 */
+	public static class ValueChange {
+		private final int index;
+		private final Object value;
+
+		public ValueChange(int index, Object value) {
+			this.index = index;
+			this.value = value;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public String toString() {
+			return index + ": " + ToStringImpl.toString(value);
+		}
+	}
+
+	/**
+	 * The calls made by a thread. Each call is given a frame id, and the frame that is running
+	 * is recorded at every offset where it changes, so the frame at any offset can be found with
+	 * a binary search.
+	 */
+	private static class ThreadFrames {
+		private final IntList frameMethodIndexes = new IntList();
+		private final List<Object> frameObjects = new ArrayList<>();
+		private final IntList changeOffsets = new IntList();
+		private final IntList changeFrames = new IntList();
+		private final IntList stack = new IntList();
+		private final Map<Long, IntList> localWrites = new HashMap<>();
+
+		private void setFrame(int offset, int frame) {
+			if(!changeOffsets.isEmpty() && changeOffsets.getLast() == offset) {
+				changeFrames.set(changeFrames.size() - 1, frame);
+			} else {
+				changeOffsets.add(offset);
+				changeFrames.add(frame);
+			}
+		}
+
+		public int getFrame(int offset) {
+			int index = changeOffsets.lowerBound(offset + 1) - 1;
+			return (index < 0) ? -1 : changeFrames.get(index);
+		}
+	}
+
+	private final List<Event> events;
+	private final Map<Thread, ThreadFrames> threadFrames = new HashMap<>();
+	private final Map<Integer, Map<String, Integer>> localNames = new HashMap<>();
+	private final Map<Object, Map<String, IntList>> fieldWrites = new IdentityHashMap<>();
+
+	/**
+	 * Creates an index of the events, which are later added in order with add.
+	 */
+	public ValueHistory(List<Event> events) {
+		this.events = events;
+	}
+
+	@Override
+	public void add(int offset, Event event) {
+		ThreadFrames frames = threadFrames.computeIfAbsent(event.thread, thread -> new ThreadFrames());
+
+		switch(event.kind) {
+		case ENTER_METHOD: {
+			int frame = frames.frameMethodIndexes.size();
+			frames.frameMethodIndexes.add(event.methodIndex);
+			frames.frameObjects.add(null);
+			frames.stack.add(frame);
+			frames.setFrame(offset, frame);
+			break;
+		}
+
+		case EXIT_WITH_VALUE:
+		case EXIT_WITH_EXCEPTION: {
+			for(int i = frames.stack.size() - 1; i >= 0; i--) {
+				if(frames.frameMethodIndexes.get(frames.stack.get(i)) == event.methodIndex) {
+					while(frames.stack.size() > i) {
+						frames.stack.removeLast();
+					}
+					frames.setFrame(offset + 1, frames.stack.isEmpty() ? -1 : frames.stack.getLast());
+					break;
+				}
+			}
+			break;
+		}
+
+		case SET_THIS:
+			if(!frames.stack.isEmpty()) {
+				frames.frameObjects.set(frames.stack.getLast(), ((SetThisEvent) event).getObject());
+			}
+			break;
+
+		case SET_LOCAL_NAME: {
+			SetLocalNameEvent setLocalNameEvent = (SetLocalNameEvent) event;
+			localNames.computeIfAbsent(event.methodIndex, k -> new HashMap<>()).put(setLocalNameEvent.name, setLocalNameEvent.index);
+			break;
+		}
+
+		case STORE:
+			if(!frames.stack.isEmpty()) {
+				long key = getLocalKey(frames.stack.getLast(), ((StoreEvent) event).varIndex);
+				frames.localWrites.computeIfAbsent(key, k -> new IntList()).add(offset);
+			}
+			break;
+
+		case PUT_FIELD: {
+			PutFieldEvent putFieldEvent = (PutFieldEvent) event;
+			fieldWrites.computeIfAbsent(putFieldEvent.object, k -> new HashMap<>())
+				.computeIfAbsent(putFieldEvent.name, k -> new IntList())
+				.add(offset);
+			break;
+		}
+
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public ValueHistory createPart() {
+		return new ValueHistory(events);
+	}
+
+	/**
+	 * Merges the frames of a part, and merges its field writes in order of offset with the
+	 * writes to the same fields by other threads.
+	 */
+	@Override
+	public void merge(ThreadedEventIndex part) {
+		ValueHistory valueHistory = (ValueHistory) part;
+		threadFrames.putAll(valueHistory.threadFrames);
+		valueHistory.localNames.forEach((methodIndex, names) -> {
+			localNames.computeIfAbsent(methodIndex, k -> new HashMap<>()).putAll(names);
+		});
+		valueHistory.fieldWrites.forEach((object, fields) -> {
+			Map<String, IntList> writes = fieldWrites.computeIfAbsent(object, k -> new HashMap<>());
+			fields.forEach((name, offsets) -> writes.merge(name, offsets, IntList::merge));
+		});
+	}
+
+	private static long getLocalKey(int frame, int varIndex) {
+		return ((long) frame << 32) | (varIndex & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the frame id of the innermost call running in a thread at an offset, or -1 if
+	 * there isn't one.
+	 */
+	public int getFrame(Thread thread, int offset) {
+		ThreadFrames frames = threadFrames.get(thread);
+		return (frames == null) ? -1 : frames.getFrame(offset);
+	}
+
+	/**
+	 * Returns the object that the method of a frame was called on, or null for static methods.
+	 */
+	public Object getFrameObject(Thread thread, int frame) {
+		return threadFrames.get(thread).frameObjects.get(frame);
+	}
+
+	/**
+	 * Returns the local variable slot with a name in the method of a frame, or -1 if it isn't known.
+	 */
+	public int getLocalIndex(Thread thread, int frame, String name) {
+		int methodIndex = threadFrames.get(thread).frameMethodIndexes.get(frame);
+		return localNames.getOrDefault(methodIndex, new HashMap<>()).getOrDefault(name, -1);
+	}
+
+	/**
+	 * Returns the writes to a local variable slot of a frame, in order.
+	 */
+	public List<ValueChange> getLocalHistory(Thread thread, int frame, int varIndex) {
+		ThreadFrames frames = threadFrames.get(thread);
+		IntList offsets = (frames == null) ? null : frames.localWrites.get(getLocalKey(frame, varIndex));
+		return getHistory(offsets);
+	}
+
+	/**
+	 * Returns the writes to a field of an object, in order.
+	 */
+	public List<ValueChange> getFieldHistory(Object object, String name) {
+		IntList offsets = fieldWrites.getOrDefault(object, new HashMap<>()).get(name);
+		return getHistory(offsets);
+	}
+
+	private List<ValueChange> getHistory(IntList offsets) {
+		List<ValueChange> history = new ArrayList<>();
+		if(offsets != null) {
+			for(int i = 0; i < offsets.size(); i++) {
+				int offset = offsets.get(i);
+				history.add(new ValueChange(offset, getValue(events.get(offset))));
+			}
+		}
+		return history;
+	}
+
+	private static Object getValue(Event event) {
+		switch(event.kind) {
+		case STORE: return ((StoreEvent) event).value;
+		case PUT_FIELD: return ((PutFieldEvent) event).value;
+		default: return null;
+		}
+	}
+}
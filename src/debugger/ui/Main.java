@@ -11,9 +11,12 @@ import org.jdom2.Element;
 
 import debugger.event.EventLogger;
 import debugger.instrumentation.Instrumentor;
+import debugger.metrics.RecorderMetrics;
 import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
 import debugger.model.QuickSort;
 import debugger.ui.common.CommandList;
+import debugger.ui.common.FrameScheduler;
 import debugger.ui.common.MenuBuilder;
 import debugger.ui.common.RunCommand;
 import debugger.ui.common.TabbedViewFactory;
@@ -21,9 +24,16 @@ import debugger.ui.common.TabbedViewLayout;
 import debugger.ui.common.TabbedViewLayout.FolderPosition;
 import debugger.ui.view.CallView;
 import debugger.ui.view.CodeView;
+import debugger.ui.view.FlameGraphView;
+import debugger.ui.view.LockView;
+import debugger.ui.view.SearchView;
+import debugger.ui.view.StatsView;
 import debugger.ui.view.ThreadView;
+import debugger.ui.view.TimelineView;
 
 public class Main {
+	private static final int FRAME_RATE = 30;
+	
 	private final CommandList commandList = new CommandList();
 	private final TabbedViewFactory tabbedViewFactory;
 	
@@ -34,11 +44,19 @@ public class Main {
 		
 		TabbedViewLayout tabbedViewLayout = new TabbedViewLayout(shell);
 		
+		RecorderMetrics.register();
+		
 		EventLog eventLog = createEventLog();
+		eventLog.setNotificationExecutor(new FrameScheduler(shell.getDisplay(), FRAME_RATE));
 		
 		tabbedViewFactory = new TabbedViewFactory(tabbedViewLayout);
-		tabbedViewFactory.registerView(ThreadView.class, "Threads", FolderPosition.LEFT, ThreadView::new);
-		tabbedViewFactory.registerView(CallView.class, "Calls", FolderPosition.BOTTOM, CallView::new);
+		tabbedViewFactory.registerView(ThreadView.class, "Threads", FolderPosition.LEFT, parent -> new ThreadView(parent, eventLog));
+		tabbedViewFactory.registerView(StatsView.class, "Stats", FolderPosition.LEFT, parent -> new StatsView(parent));
+		tabbedViewFactory.registerView(CallView.class, "Calls", FolderPosition.BOTTOM, parent -> new CallView(parent, eventLog));
+		tabbedViewFactory.registerView(TimelineView.class, "Timeline", FolderPosition.BOTTOM, parent -> new TimelineView(parent, eventLog));
+		tabbedViewFactory.registerView(FlameGraphView.class, "Flame Graph", FolderPosition.BOTTOM, parent -> new FlameGraphView(parent, eventLog));
+		tabbedViewFactory.registerView(LockView.class, "Locks", FolderPosition.BOTTOM, parent -> new LockView(parent, eventLog));
+		tabbedViewFactory.registerView(SearchView.class, "Search", FolderPosition.BOTTOM, parent -> new SearchView(parent, eventLog));
 		tabbedViewFactory.registerView(CodeView.class, "Code", FolderPosition.RIGHT, parent -> new CodeView(parent, eventLog));
 		
 		tabbedViewFactory.getRegisteredViews().forEach(viewInfo -> {
@@ -49,18 +67,57 @@ public class Main {
 		tabbedViewLayout.serialize(element);
 		
 		createMenuBar(shell);
+		
+		scheduleUpdates(eventLog);
+		showIndexProgress(eventLog);
+	}
+	
+	/**
+	 * Shows the progress of building the indexes of a large event log in the title of the shell.
+	 */
+	private void showIndexProgress(EventLog eventLog) {
+		eventLog.addChangeListener(changes -> {
+			if(changes.contains(Change.INDEXING) && !shell.isDisposed()) {
+				double progress = eventLog.getIndexProgress();
+				shell.setText((progress < 1) ? String.format("Debugger - indexing %d%%", (int) (progress * 100)) : "Debugger");
+			}
+		});
 	}
 	
+	/**
+	 * Creates an event log that follows the events of the traced program, which is run on a
+	 * background thread so that it can be observed while it is still running.
+	 */
 	private static EventLog createEventLog() {
+		EventLogger.setTimestampBatch(1);
 		EventLogger.clear();
 		new Instrumentor().instrumentClass(QuickSort.class);
-		QuickSort.sort(Arrays.asList(5, 2, 3, 8, 7, 3, 8, 6, 3));
 		
-		EventLog eventLog = new EventLog(EventLogger.getEvents());
+		EventLog eventLog = new EventLog(EventLogger.getEventBuffer());
 		eventLog.setSourceFile(new File(Main.class.getResource(".").getFile(), "../../../test/debugger/model/QuickSort.java"));
+		
+		Thread thread = new Thread(() -> QuickSort.sort(Arrays.asList(5, 2, 3, 8, 7, 3, 8, 6, 3)), "program");
+		thread.setDaemon(true);
+		thread.start();
+		
+		eventLog.setThread(thread);
+		
 		return eventLog;
 	}
 	
+	/**
+	 * Polls the event log for newly recorded events, so that the views are refreshed in
+	 * batches at most FRAME_RATE times a second.
+	 */
+	private void scheduleUpdates(EventLog eventLog) {
+		shell.getDisplay().timerExec(1000 / FRAME_RATE, () -> {
+			if(!shell.isDisposed()) {
+				eventLog.update();
+				scheduleUpdates(eventLog);
+			}
+		});
+	}
+	
 	private void createMenuBar(final Shell shell) {
 		MenuBuilder menuBuilder = new MenuBuilder(shell, commandList);
 		
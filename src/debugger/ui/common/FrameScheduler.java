@@ -0,0 +1,43 @@
+package debugger.ui.common;
+
+import java.util.concurrent.Executor;
+
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Runs tasks on the display thread, at most once per frame. A task submitted less than a frame
+ * after the previous one ran is delayed until the start of the next frame.
+ */
+public class FrameScheduler implements Executor {
+	private final Display display;
+	private final long frameNanos;
+	
+	private long lastRunTime;
+	
+	public FrameScheduler(Display display, int frameRate) {
+		this.display = display;
+		this.frameNanos = 1_000_000_000L / frameRate;
+		this.lastRunTime = System.nanoTime() - frameNanos;
+	}
+	
+	@Override
+	public void execute(Runnable task) {
+		if(display.isDisposed()) {
+			return;
+		}
+		
+		display.asyncExec(() -> {
+			long wait = lastRunTime + frameNanos - System.nanoTime();
+			if(wait > 0) {
+				display.timerExec((int) Math.max(1, wait / 1_000_000), () -> run(task));
+			} else {
+				run(task);
+			}
+		});
+	}
+	
+	private void run(Runnable task) {
+		lastRunTime = System.nanoTime();
+		task.run();
+	}
+}
@@ -1,39 +1,117 @@
 package debugger.ui.view;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.graphics.Font;
-import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
 
+import debugger.model.CallStackNode;
+import debugger.model.CallTree;
+import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
 import debugger.ui.common.TabbedView;
+import debugger.ui.common.layout.GridDataBuilder;
 import debugger.ui.common.layout.GridLayoutBuilder;
 
+/**
+ * Shows the calls made by the current thread. The tree is virtual, so items are only created
+ * for expanded calls, and their text is only formatted when they become visible.
+ */
 public class CallView implements TabbedView {
 	private final Composite composite;
-	
-	public CallView(Composite parent) {
+	private final Tree tree;
+	private final EventLog eventLog;
+
+	private final Map<Integer, int[]> childrenCache = new HashMap<>();
+	private CallTree callTree;
+
+	public CallView(Composite parent, EventLog eventLog) {
+		this.eventLog = eventLog;
+
 		composite = new Composite(parent, SWT.NONE);
-		
-		composite.setLayout(new GridLayoutBuilder().marginWidth(10).marginHeight(10).build());
-		
-		FontData[] fontData = Display.getDefault().getSystemFont().getFontData();
-		for(FontData data:fontData) {
-			data.setHeight(15);
+
+		composite.setLayout(new GridLayoutBuilder().marginWidth(0).marginHeight(0).build());
+
+		tree = new Tree(composite, SWT.VIRTUAL | SWT.SINGLE);
+		tree.setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().build());
+
+		tree.addListener(SWT.SetData, this::setData);
+		tree.addListener(SWT.Selection, event -> selectCall((TreeItem) event.item));
+
+		Runnable removeListener = eventLog.addChangeListener(this::refresh);
+		composite.addDisposeListener(e -> removeListener.run());
+	}
+
+	private void refresh(Set<Change> changes) {
+		if(composite.isDisposed()) {
+			return;
+		}
+
+		if(changes.contains(Change.THREAD)) {
+			childrenCache.clear();
+			callTree = eventLog.getCallTree();
+			tree.removeAll();
+			tree.setItemCount(getChildren(CallTree.ROOT).length);
+		} else if(changes.contains(Change.EVENTS)) {
+			childrenCache.clear();
+			callTree = eventLog.getCallTree();
+			tree.setItemCount(getChildren(CallTree.ROOT).length);
+			tree.clearAll(true);
 		}
-		
-		Font font = new Font(Display.getDefault(), fontData);
-		
-		Label label = new Label(composite, SWT.NONE);
-		label.setFont(font);
-		label.setText("Call View");
-		
-		composite.setBackground(Display.getDefault().getSystemColor(SWT.COLOR_WHITE));
-		label.setBackground(Display.getDefault().getSystemColor(SWT.COLOR_WHITE));
 	}
-	
+
+	/**
+	 * Fills in a tree item when it first becomes visible.
+	 */
+	private void setData(Event event) {
+		TreeItem item = (TreeItem) event.item;
+		TreeItem parentItem = item.getParentItem();
+
+		int parentCall = (parentItem == null) ? CallTree.ROOT : (Integer) parentItem.getData();
+		int[] children = getChildren(parentCall);
+		if(event.index >= children.length) {
+			return;
+		}
+
+		int call = children[event.index];
+		Thread thread = eventLog.getThread();
+
+		item.setData(call);
+		CallStackNode node = callTree.getNode(thread, call);
+		item.setText(node.toString() + formatTime(node));
+		item.setItemCount(callTree.getChildCount(thread, call));
+	}
+
+	/**
+	 * Formats the inclusive and exclusive time of a call, if its events were stamped.
+	 */
+	private static String formatTime(CallStackNode node) {
+		if(node.getInclusiveNanos() < 0) {
+			return "";
+		}
+		return String.format(" [%.3f ms, self %.3f ms]", node.getInclusiveNanos() / 1e6, node.getExclusiveNanos() / 1e6);
+	}
+
+	private int[] getChildren(int call) {
+		return childrenCache.computeIfAbsent(call, k -> callTree.getChildren(eventLog.getThread(), call));
+	}
+
+	/**
+	 * Moves the event log to just after the start of the selected call.
+	 */
+	private void selectCall(TreeItem item) {
+		if(item != null && item.getData() != null) {
+			int call = (Integer) item.getData();
+			eventLog.setIndex(callTree.getStartOffset(eventLog.getThread(), call) + 1);
+		}
+	}
+
 	public Control getControl() {
 		return composite;
 	}
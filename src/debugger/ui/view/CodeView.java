@@ -3,8 +3,8 @@ package debugger.ui.view;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
-import org.apache.commons.io.FileUtils;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
@@ -14,9 +14,11 @@ import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
 
 import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
 import debugger.ui.common.TabbedView;
 import debugger.ui.common.layout.GridDataBuilder;
 import debugger.ui.common.layout.GridLayoutBuilder;
+import debugger.ui.view.SourceCache.Source;
 import debugger.ui.view.text.EditorText;
 import syntaxhighlighter.brush.BrushJava;
 
@@ -25,6 +27,9 @@ public class CodeView implements TabbedView {
 	private final EditorText editorText;
 	private final ToolBar toolbar;
 	private final EventLog eventLog;
+	private final SourceCache sourceCache = new SourceCache();
+	
+	private Source displayedSource;
 	
 	public CodeView(Composite parent, EventLog eventLog) {
 		this.eventLog = eventLog;
@@ -38,31 +43,87 @@ public class CodeView implements TabbedView {
 		addToolbarItem("/debugger/ui/view/icons/stepinto.png", "Step into");
 		addToolbarItem("/debugger/ui/view/icons/stepover.png", "Step over");
 		addToolbarItem("/debugger/ui/view/icons/stepreturn.png", "Step return");
+		addToolbarItem("/debugger/ui/view/icons/runlast.png", "Go to last write").addListener(SWT.Selection, event -> goToLastWrite());
 		
 		editorText = new EditorText(composite);
 		
 		editorText.getControl().setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().build());
 		
-		Runnable removeCallback = eventLog.addChangeCallback(this::refresh);
-		composite.addDisposeListener(e -> removeCallback.run());
+		Runnable removeListener = eventLog.addChangeListener(this::refresh);
+		composite.addDisposeListener(e -> removeListener.run());
 	}
 	
-	private void addToolbarItem(String imagePath, String tooltip) {
+	private ToolItem addToolbarItem(String imagePath, String tooltip) {
 		ToolItem toolItem = new ToolItem(toolbar, SWT.NONE);
 		toolItem.setToolTipText(tooltip);
 		InputStream inputStream = getClass().getResourceAsStream(imagePath);
 		Image image = new Image(Display.getCurrent(), inputStream);
 		composite.addDisposeListener(e -> image.dispose());
 		toolItem.setImage(image);
+		return toolItem;
+	}
+	
+	/**
+	 * Moves the index back to just after the last write to the variable at the caret, which is
+	 * a local of the current call or a field of the object it was called on.
+	 */
+	private void goToLastWrite() {
+		String name = editorText.getWordAtCaret();
+		if(name != null) {
+			int offset = eventLog.getLastWrite(name);
+			if(offset >= 0) {
+				eventLog.setIndex(offset + 1);
+			}
+		}
 	}
 
-	private void refresh() {
+	private void refresh(Set<Change> changes) {
+		if(composite.isDisposed()) {
+			return;
+		}
+		
+		if(changes.contains(Change.SOURCE)) {
+			refreshSource();
+		}
+		
+		if(changes.contains(Change.INDEX) || changes.contains(Change.THREAD) || changes.contains(Change.EVENTS)) {
+			editorText.setExecutionLine(eventLog.getCurrentLineNumber() - 1);
+		}
+		
+		if(changes.contains(Change.SOURCE) || changes.contains(Change.EVENTS)) {
+			File file = eventLog.getSourceFile();
+			editorText.setLineCounts(file == null ? new int[0] : eventLog.getLineCounts(file));
+		}
+	}
+	
+	/**
+	 * Shows the source file, using the cached text and syntax highlighting if the file hasn't changed.
+	 */
+	private void refreshSource() {
 		File file = eventLog.getSourceFile();
 		
-		try {
-			String source = (file == null) ? "" : FileUtils.readFileToString(file, "UTF-8");
-			editorText.setText(source);
+		if(file == null) {
+			displayedSource = null;
+			editorText.setText("");
 			editorText.setBrush(new BrushJava());
+			return;
+		}
+		
+		try {
+			Source source = sourceCache.getSource(file);
+			if(source == displayedSource) {
+				return;
+			}
+			
+			editorText.setText(source.getText());
+			if(source.getTextIndex() == null) {
+				editorText.setHighlightingListener(source::setTextIndex);
+				editorText.setBrush(new BrushJava());
+			} else {
+				editorText.setBrush(new BrushJava(), source.getTextIndex());
+			}
+			
+			displayedSource = source;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,221 @@
+package debugger.ui.view;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+
+import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
+import debugger.model.FlameGraph.Node;
+import debugger.ui.common.ColorCache;
+import debugger.ui.common.TabbedView;
+import debugger.ui.common.layout.GridDataBuilder;
+import debugger.ui.common.layout.GridLayoutBuilder;
+
+/**
+ * Shows the flame graph of the event log as an icicle graph, with the threads at the top and
+ * each call path below its caller, as wide as its share of the events or time of its caller.
+ * Nodes narrower than a pixel are culled along with their descendants, and labels are only
+ * drawn on nodes wide enough for them. Clicking a node zooms into it, and clicking one of the
+ * nodes above it zooms back out.
+ */
+public class FlameGraphView implements TabbedView {
+	private static final int ROW_HEIGHT = 18;
+	private static final double MIN_WIDTH = 1;
+	private static final int MIN_LABEL_WIDTH = 30;
+	private static final int PADDING = 2;
+
+	/**
+	 * A node drawn in the last paint, for hit testing.
+	 */
+	private static class Box {
+		private final Node node;
+		private final int x;
+		private final int y;
+		private final int width;
+
+		public Box(Node node, int x, int y, int width) {
+			this.node = node;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+		}
+
+		private boolean contains(int x, int y) {
+			return x >= this.x && x < this.x + width && y >= this.y && y < this.y + ROW_HEIGHT;
+		}
+	}
+
+	private final Composite composite;
+	private final Combo weightCombo;
+	private final Canvas canvas;
+	private final EventLog eventLog;
+	private final ColorCache colorCache;
+
+	private final List<Box> boxes = new ArrayList<>();
+	private Node zoomNode;
+
+	public FlameGraphView(Composite parent, EventLog eventLog) {
+		this.eventLog = eventLog;
+
+		composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(new GridLayoutBuilder().marginWidth(0).marginHeight(0).build());
+
+		weightCombo = new Combo(composite, SWT.READ_ONLY);
+		weightCombo.setItems("Events", "Time");
+		weightCombo.select(0);
+
+		canvas = new Canvas(composite, SWT.DOUBLE_BUFFERED);
+		canvas.setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().build());
+		colorCache = new ColorCache(canvas.getDisplay());
+		canvas.addDisposeListener(colorCache);
+
+		canvas.addPaintListener(event -> paint(event.gc));
+		weightCombo.addListener(SWT.Selection, event -> canvas.redraw());
+
+		canvas.addListener(SWT.MouseMove, event -> {
+			Box box = findBox(event.x, event.y);
+			canvas.setToolTipText((box == null) ? null : getToolTip(box.node));
+		});
+		canvas.addListener(SWT.MouseDown, event -> {
+			Box box = findBox(event.x, event.y);
+			if(event.button == 1 && box != null) {
+				zoomNode = (box.node.getParent() == null) ? null : box.node;
+				canvas.redraw();
+			}
+		});
+
+		Runnable removeListener = eventLog.addChangeListener(this::refresh);
+		composite.addDisposeListener(e -> removeListener.run());
+	}
+
+	private void refresh(Set<Change> changes) {
+		if(!canvas.isDisposed() && changes.contains(Change.EVENTS)) {
+			canvas.redraw();
+		}
+	}
+
+	private boolean isTimeWeighted() {
+		return weightCombo.getSelectionIndex() == 1;
+	}
+
+	private long getWeight(Node node) {
+		return isTimeWeighted() ? node.getTotalNanos() : node.getTotalEvents();
+	}
+
+	private String getToolTip(Node node) {
+		String weight = isTimeWeighted()
+			? String.format("%.3f ms", node.getTotalNanos() / 1e6)
+			: node.getTotalEvents() + " events, " + node.getSelfEvents() + " self";
+		return node.getName() + (node.getDescriptor() == null ? "" : node.getDescriptor()) + "\n" + node.getCalls() + " calls, " + weight;
+	}
+
+	private Box findBox(int x, int y) {
+		for(Box box:boxes) {
+			if(box.contains(x, y)) {
+				return box;
+			}
+		}
+		return null;
+	}
+
+	private void paint(GC gc) {
+		Rectangle area = canvas.getClientArea();
+		gc.setBackground(canvas.getDisplay().getSystemColor(SWT.COLOR_LIST_BACKGROUND));
+		gc.fillRectangle(area);
+		boxes.clear();
+
+		Node root = eventLog.getFlameGraph().getRoot();
+		Node zoom = (zoomNode == null) ? root : zoomNode;
+		if(getWeight(zoom) <= 0) {
+			return;
+		}
+
+		for(Node node = zoom.getParent(); node != null; node = node.getParent()) {
+			paintNode(gc, node, 0, area.width);
+		}
+
+		int charWidth = Math.max(gc.getFontMetrics().getAverageCharWidth(), 1);
+		List<Node> nodes = new ArrayList<>();
+		List<double[]> spans = new ArrayList<>();
+		nodes.add(zoom);
+		spans.add(new double[] {0, area.width});
+
+		while(!nodes.isEmpty()) {
+			Node node = nodes.remove(nodes.size() - 1);
+			double[] span = spans.remove(spans.size() - 1);
+			double x = span[0];
+			double width = span[1];
+			if(width < MIN_WIDTH || node.getDepth() * ROW_HEIGHT > area.height) {
+				continue;
+			}
+
+			Box box = paintNode(gc, node, (int) x, Math.max((int) (x + width) - (int) x, 1));
+			if(box.width >= MIN_LABEL_WIDTH) {
+				paintLabel(gc, node, box, charWidth);
+			}
+
+			// A call that has not finished has no time yet, so its children have nothing to share
+			long weight = getWeight(node);
+			if(weight <= 0) {
+				continue;
+			}
+			double childX = x;
+			for(Node child:node.getChildren()) {
+				double childWidth = width * getWeight(child) / weight;
+				nodes.add(child);
+				spans.add(new double[] {childX, childWidth});
+				childX += childWidth;
+			}
+		}
+	}
+
+	private Box paintNode(GC gc, Node node, int x, int width) {
+		int y = node.getDepth() * ROW_HEIGHT;
+		gc.setBackground(getColor(node));
+		gc.fillRectangle(x, y, width, ROW_HEIGHT - 1);
+
+		Box box = new Box(node, x, y, width);
+		boxes.add(box);
+		return box;
+	}
+
+	private void paintLabel(GC gc, Node node, Box box, int charWidth) {
+		String label = node.getName();
+		int maxChars = (box.width - 2 * PADDING) / charWidth;
+		if(maxChars < 4) {
+			return;
+		}
+		if(label.length() > maxChars) {
+			label = label.substring(0, maxChars - 3) + "...";
+		}
+
+		gc.setForeground(canvas.getDisplay().getSystemColor(SWT.COLOR_BLACK));
+		gc.drawString(label, box.x + PADDING, box.y + 1, true);
+	}
+
+	/**
+	 * Returns a warm color picked by the class of a node, so that calls to the same class have
+	 * the same color. The root and threads are gray.
+	 */
+	private Color getColor(Node node) {
+		if(node.getMethodName() == null) {
+			return colorCache.getColor(200, 200, 200);
+		}
+		int hash = node.getClassName().hashCode() & 0x7fffffff;
+		return colorCache.getColor(205 + hash % 50, 90 + (hash / 50) % 130, 40 + (hash / 6500) % 50);
+	}
+
+	public Control getControl() {
+		return composite;
+	}
+}
@@ -0,0 +1,107 @@
+package debugger.ui.view;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+
+import debugger.event.Events;
+import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
+import debugger.model.LockStats;
+import debugger.model.LockStats.Stats;
+import debugger.ui.common.TabbedView;
+import debugger.ui.common.layout.GridDataBuilder;
+import debugger.ui.common.layout.GridLayoutBuilder;
+
+/**
+ * Shows the contention of each monitor and each call site that entered a monitor, with the
+ * time spent waiting for and holding the monitor, sorted by the total wait time.
+ */
+public class LockView implements TabbedView {
+	private final Composite composite;
+	private final Table table;
+	private final EventLog eventLog;
+
+	public LockView(Composite parent, EventLog eventLog) {
+		this.eventLog = eventLog;
+
+		composite = new Composite(parent, SWT.NONE);
+
+		composite.setLayout(new GridLayoutBuilder().marginWidth(0).marginHeight(0).build());
+
+		table = new Table(composite, SWT.SINGLE | SWT.FULL_SELECTION);
+		table.setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().build());
+		table.setHeaderVisible(true);
+
+		addColumn("Monitor / Call site", 300);
+		addColumn("Acquired", 70);
+		addColumn("Contended", 70);
+		addColumn("Wait (ms)", 80);
+		addColumn("Max wait (ms)", 90);
+		addColumn("Hold (ms)", 80);
+		addColumn("Max hold (ms)", 90);
+
+		Runnable removeListener = eventLog.addChangeListener(this::refresh);
+		composite.addDisposeListener(e -> removeListener.run());
+	}
+
+	private void addColumn(String text, int width) {
+		TableColumn column = new TableColumn(table, SWT.NONE);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	private void refresh(Set<Change> changes) {
+		if(composite.isDisposed() || !changes.contains(Change.EVENTS)) {
+			return;
+		}
+
+		LockStats lockStats = eventLog.getLockStats();
+		List<String[]> rows = new ArrayList<>();
+		for(Map.Entry<Object, Stats> entry:sortByWait(lockStats.getMonitorStats())) {
+			rows.add(createRow(Events.getObjectName(entry.getKey()), entry.getValue()));
+		}
+		for(Map.Entry<String, Stats> entry:sortByWait(lockStats.getCallSiteStats())) {
+			rows.add(createRow("  " + entry.getKey(), entry.getValue()));
+		}
+
+		table.setItemCount(rows.size());
+		for(int i = 0; i < rows.size(); i++) {
+			table.getItem(i).setText(rows.get(i));
+		}
+	}
+
+	private static <K> List<Map.Entry<K, Stats>> sortByWait(Map<K, Stats> stats) {
+		List<Map.Entry<K, Stats>> entries = new ArrayList<>(stats.entrySet());
+		entries.sort(Comparator.comparingLong((Map.Entry<K, Stats> entry) -> entry.getValue().getTotalWaitNanos()).reversed());
+		return entries;
+	}
+
+	private static String[] createRow(String name, Stats stats) {
+		return new String[] {
+			name,
+			String.valueOf(stats.getAcquisitions()),
+			String.valueOf(stats.getContended()),
+			formatMillis(stats.getTotalWaitNanos()),
+			formatMillis(stats.getMaxWaitNanos()),
+			formatMillis(stats.getTotalHoldNanos()),
+			formatMillis(stats.getMaxHoldNanos())
+		};
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format("%.3f", nanos / 1e6);
+	}
+
+	public Control getControl() {
+		return composite;
+	}
+}
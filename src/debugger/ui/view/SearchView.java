@@ -0,0 +1,106 @@
+package debugger.ui.view;
+
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+
+import debugger.event.Events.Event;
+import debugger.model.EventLog;
+import debugger.ui.common.TabbedView;
+import debugger.ui.common.layout.GridDataBuilder;
+import debugger.ui.common.layout.GridLayoutBuilder;
+
+/**
+ * Searches the event log with a query such as "local x > 5" or "return sort = []", and lists
+ * the matching events in a virtual table. Selecting a result moves the event log to it.
+ */
+public class SearchView implements TabbedView {
+	private final Composite composite;
+	private final Text queryText;
+	private final Label statusLabel;
+	private final Table table;
+	private final EventLog eventLog;
+
+	private int[] results = new int[0];
+
+	public SearchView(Composite parent, EventLog eventLog) {
+		this.eventLog = eventLog;
+
+		composite = new Composite(parent, SWT.NONE);
+
+		composite.setLayout(new GridLayoutBuilder().numColumns(2).marginWidth(0).marginHeight(0).build());
+
+		queryText = new Text(composite, SWT.SEARCH);
+		queryText.setMessage("field pivot, return sort = [], local x > 5");
+		queryText.setLayoutData(new GridDataBuilder().fillHorizontal().build());
+		queryText.addListener(SWT.DefaultSelection, event -> search());
+
+		statusLabel = new Label(composite, SWT.NONE);
+		statusLabel.setLayoutData(new GridDataBuilder().width(200).build());
+
+		table = new Table(composite, SWT.VIRTUAL | SWT.SINGLE | SWT.FULL_SELECTION);
+		table.setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().horizontalSpan(2).build());
+		table.setHeaderVisible(true);
+
+		addColumn("Index", 70);
+		addColumn("Thread", 100);
+		addColumn("Line", 50);
+		addColumn("Event", 500);
+
+		table.addListener(SWT.SetData, event -> {
+			TableItem item = (TableItem) event.item;
+			int offset = results[event.index];
+			Event result = eventLog.getEvents().get(offset);
+			item.setText(new String[] {
+				String.valueOf(offset),
+				result.thread.getName(),
+				String.valueOf(result.lineNumber),
+				result.toString()
+			});
+		});
+
+		table.addListener(SWT.Selection, event -> selectResult(table.getSelectionIndex()));
+	}
+
+	private void addColumn(String text, int width) {
+		TableColumn column = new TableColumn(table, SWT.NONE);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	private void search() {
+		try {
+			results = eventLog.search(queryText.getText());
+			statusLabel.setText(results.length + (results.length == 1 ? " result" : " results"));
+		} catch(IllegalArgumentException e) {
+			results = new int[0];
+			statusLabel.setText(e.getMessage());
+		}
+
+		table.setItemCount(results.length);
+		table.clearAll();
+	}
+
+	/**
+	 * Moves the event log to just after a result, in the thread of the result.
+	 */
+	private void selectResult(int index) {
+		if(index >= 0 && index < results.length) {
+			List<Event> events = eventLog.getEvents();
+			int offset = results[index];
+			eventLog.setThread(events.get(offset).thread);
+			eventLog.setIndex(offset + 1);
+		}
+	}
+
+	public Control getControl() {
+		return composite;
+	}
+}
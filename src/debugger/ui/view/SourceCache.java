@@ -0,0 +1,66 @@
+package debugger.ui.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import debugger.ui.view.text.TextIndex;
+
+/**
+ * Caches the text of source files along with their syntax highlighting and index, keyed by
+ * path and last modified time so that changed files are read again.
+ */
+class SourceCache {
+	private static final int MAX_ENTRIES = 16;
+	
+	static class Source {
+		private final long lastModified;
+		private final String text;
+		private TextIndex textIndex;
+		
+		private Source(long lastModified, String text) {
+			this.lastModified = lastModified;
+			this.text = text;
+		}
+		
+		public String getText() {
+			return text;
+		}
+		
+		/**
+		 * Returns the syntax highlighting and index of this text, or null if they haven't been computed.
+		 */
+		public TextIndex getTextIndex() {
+			return textIndex;
+		}
+		
+		public void setTextIndex(TextIndex textIndex) {
+			this.textIndex = textIndex;
+		}
+	}
+	
+	private final Map<String, Source> sources = new LinkedHashMap<String, Source>(MAX_ENTRIES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Source> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	
+	/**
+	 * Returns the source for a file, reading it only if it isn't cached or has been modified.
+	 */
+	public Source getSource(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		long lastModified = file.lastModified();
+		
+		Source source = sources.get(path);
+		if(source == null || source.lastModified != lastModified) {
+			source = new Source(lastModified, FileUtils.readFileToString(file, "UTF-8"));
+			sources.put(path, source);
+		}
+		return source;
+	}
+}
@@ -0,0 +1,81 @@
+package debugger.ui.view;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import debugger.metrics.RecorderMetrics;
+import debugger.ui.common.TabbedView;
+
+/**
+ * Shows the recorder metrics, such as the number of events of each kind and the capture latency,
+ * refreshing them periodically while the view is open.
+ */
+public class StatsView implements TabbedView {
+	private static final int REFRESH_MILLIS = 500;
+
+	private final Table table;
+	private final RecorderMetrics metrics = RecorderMetrics.getInstance();
+
+	public StatsView(Composite parent) {
+		table = new Table(parent, SWT.SINGLE | SWT.FULL_SELECTION);
+		table.setHeaderVisible(true);
+
+		addColumn("Name", 200);
+		addColumn("Value", 120);
+
+		refresh();
+	}
+
+	private void addColumn(String text, int width) {
+		TableColumn column = new TableColumn(table, SWT.NONE);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	private void refresh() {
+		if(table.isDisposed()) {
+			return;
+		}
+
+		List<String[]> rows = new ArrayList<>();
+		rows.add(new String[] {"Events", String.valueOf(metrics.getEventCount())});
+		rows.add(new String[] {"Dropped events", String.valueOf(metrics.getDropCount())});
+		rows.add(new String[] {"Sampled out events", String.valueOf(metrics.getSampledOutCount())});
+		rows.add(new String[] {"Buffer size", String.valueOf(metrics.getBufferSize())});
+		rows.add(new String[] {"Buffer capacity", String.valueOf(metrics.getBufferCapacity())});
+		rows.add(new String[] {"Capture latency mean (ns)", String.format("%.1f", metrics.getCaptureLatencyMeanNanos())});
+		rows.add(new String[] {"Capture latency p50 (ns)", "< " + metrics.getCaptureLatencyP50Nanos()});
+		rows.add(new String[] {"Capture latency p99 (ns)", "< " + metrics.getCaptureLatencyP99Nanos()});
+		rows.add(new String[] {"Classes instrumented", String.valueOf(metrics.getClassesInstrumented())});
+		rows.add(new String[] {"Methods instrumented", String.valueOf(metrics.getMethodsInstrumented())});
+
+		for(Map.Entry<String, Long> entry:metrics.getEventCountsByKind().entrySet()) {
+			if(entry.getValue() > 0) {
+				rows.add(new String[] {"  " + entry.getKey(), String.valueOf(entry.getValue())});
+			}
+		}
+		for(Map.Entry<String, Long> entry:metrics.getTransformNanosByClass().entrySet()) {
+			rows.add(new String[] {"Transform " + entry.getKey() + " (ms)", String.format("%.2f", entry.getValue() / 1e6)});
+		}
+
+		table.setItemCount(rows.size());
+		for(int i = 0; i < rows.size(); i++) {
+			TableItem item = table.getItem(i);
+			item.setText(rows.get(i));
+		}
+
+		table.getDisplay().timerExec(REFRESH_MILLIS, this::refresh);
+	}
+
+	public Control getControl() {
+		return table;
+	}
+}
@@ -1,39 +1,96 @@
 package debugger.ui.view;
 
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.graphics.Font;
-import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
 
+import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
+import debugger.model.ThreadRegistry.ThreadInfo;
 import debugger.ui.common.TabbedView;
+import debugger.ui.common.layout.GridDataBuilder;
 import debugger.ui.common.layout.GridLayoutBuilder;
 
+/**
+ * Shows the threads that logged events, with a summary of the events of each thread from the
+ * thread registry. Selecting a thread makes it the current thread of the event log.
+ */
 public class ThreadView implements TabbedView {
 	private final Composite composite;
-	
-	public ThreadView(Composite parent) {
+	private final Table table;
+	private final EventLog eventLog;
+
+	public ThreadView(Composite parent, EventLog eventLog) {
+		this.eventLog = eventLog;
+
 		composite = new Composite(parent, SWT.NONE);
-		
-		composite.setLayout(new GridLayoutBuilder().marginWidth(10).marginHeight(10).build());
-		
-		FontData[] fontData = Display.getDefault().getSystemFont().getFontData();
-		for(FontData data:fontData) {
-			data.setHeight(15);
+
+		composite.setLayout(new GridLayoutBuilder().marginWidth(0).marginHeight(0).build());
+
+		table = new Table(composite, SWT.SINGLE | SWT.FULL_SELECTION);
+		table.setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().build());
+		table.setHeaderVisible(true);
+
+		addColumn("Thread", 100);
+		addColumn("Events", 60);
+		addColumn("First", 60);
+		addColumn("Last", 60);
+		addColumn("Method", 200);
+
+		table.addListener(SWT.Selection, event -> {
+			eventLog.setThread((Thread) event.item.getData());
+		});
+
+		Runnable removeListener = eventLog.addChangeListener(this::refresh);
+		composite.addDisposeListener(e -> removeListener.run());
+	}
+
+	private void addColumn(String text, int width) {
+		TableColumn column = new TableColumn(table, SWT.NONE);
+		column.setText(text);
+		column.setWidth(width);
+	}
+
+	private void refresh(Set<Change> changes) {
+		if(composite.isDisposed()) {
+			return;
 		}
-		
-		Font font = new Font(Display.getDefault(), fontData);
-		
-		Label label = new Label(composite, SWT.NONE);
-		label.setFont(font);
-		label.setText("Thread View");
-		
-		composite.setBackground(Display.getDefault().getSystemColor(SWT.COLOR_WHITE));
-		label.setBackground(Display.getDefault().getSystemColor(SWT.COLOR_WHITE));
+
+		if(changes.contains(Change.EVENTS)) {
+			List<Thread> threads = eventLog.getThreads();
+			table.setItemCount(threads.size());
+			for(int i = 0; i < threads.size(); i++) {
+				updateItem(table.getItem(i), eventLog.getThreadInfo(threads.get(i)));
+			}
+		}
+
+		if(changes.contains(Change.EVENTS) || changes.contains(Change.THREAD)) {
+			table.deselectAll();
+			for(TableItem item:table.getItems()) {
+				if(item.getData() == eventLog.getThread()) {
+					table.select(table.indexOf(item));
+				}
+			}
+		}
+	}
+
+	private static void updateItem(TableItem item, ThreadInfo info) {
+		item.setData(info.getThread());
+		item.setText(new String[] {
+			info.getThread().getName(),
+			String.valueOf(info.getEventCount()),
+			String.valueOf(info.getFirstOffset()),
+			String.valueOf(info.getLastOffset()),
+			(info.getCurrentMethod() == null) ? "" : info.getCurrentMethod()
+		});
 	}
-	
+
 	public Control getControl() {
 		return composite;
 	}
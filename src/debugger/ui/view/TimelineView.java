@@ -0,0 +1,242 @@
+package debugger.ui.view;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+
+import debugger.event.Events.Event;
+import debugger.model.EventLog;
+import debugger.model.EventLog.Change;
+import debugger.model.HappensBefore.Edge;
+import debugger.model.Timeline;
+import debugger.ui.common.ColorCache;
+import debugger.ui.common.TabbedView;
+
+/**
+ * Shows the activity of each thread over the whole event log, with a row for each thread. Each
+ * column of a row is drawn from the timeline summary, spanning the call depths of the thread
+ * and shaded by the number of events. The happens-before edges between threads are drawn as
+ * lines between their rows. Clicking or dragging moves the index of the event log.
+ */
+public class TimelineView implements TabbedView {
+	private static final int ROW_HEIGHT = 24;
+	private static final int LABEL_WIDTH = 80;
+	private static final int PADDING = 4;
+	private static final int SHADES = 4;
+	private static final int MAX_EDGES = 2000;
+
+	/**
+	 * The summary of a thread for the current width of the view.
+	 */
+	private static class Row {
+		private final Thread thread;
+		private final int[] counts;
+		private final int[] minDepths;
+		private final int[] maxDepths;
+		private int maxCount;
+		private int maxDepth;
+
+		public Row(Thread thread, int width) {
+			this.thread = thread;
+			this.counts = new int[width];
+			this.minDepths = new int[width];
+			this.maxDepths = new int[width];
+		}
+	}
+
+	private final Canvas canvas;
+	private final EventLog eventLog;
+	private final ColorCache colorCache;
+
+	private final List<Row> rows = new ArrayList<>();
+	private int rowsSize = -1;
+	private int rowsWidth = -1;
+	private boolean dragging;
+
+	public TimelineView(Composite parent, EventLog eventLog) {
+		this.eventLog = eventLog;
+
+		canvas = new Canvas(parent, SWT.DOUBLE_BUFFERED);
+		colorCache = new ColorCache(canvas.getDisplay());
+		canvas.addDisposeListener(colorCache);
+
+		canvas.addPaintListener(event -> paint(event.gc));
+
+		canvas.addListener(SWT.MouseDown, event -> {
+			if(event.button == 1) {
+				dragging = true;
+				selectThread(event.y);
+				moveIndex(event.x);
+			}
+		});
+		canvas.addListener(SWT.MouseMove, event -> {
+			if(dragging) {
+				moveIndex(event.x);
+			}
+		});
+		canvas.addListener(SWT.MouseUp, event -> dragging = false);
+
+		Runnable removeListener = eventLog.addChangeListener(this::refresh);
+		canvas.addDisposeListener(e -> removeListener.run());
+	}
+
+	private void refresh(Set<Change> changes) {
+		if(!canvas.isDisposed()) {
+			canvas.redraw();
+		}
+	}
+
+	private int getTimelineWidth() {
+		return Math.max(canvas.getClientArea().width - LABEL_WIDTH - PADDING, 0);
+	}
+
+	/**
+	 * Moves the index to the event under an x coordinate. The notifications from dragging are
+	 * coalesced by the event log, so the other views refresh at most once per frame.
+	 */
+	private void moveIndex(int x) {
+		int width = getTimelineWidth();
+		if(width == 0) {
+			return;
+		}
+
+		int size = eventLog.getEvents().size();
+		int column = Math.max(0, Math.min(x - LABEL_WIDTH, width));
+		eventLog.setIndex((int) ((long) size * column / width));
+	}
+
+	private void selectThread(int y) {
+		int row = y / ROW_HEIGHT;
+		if(row >= 0 && row < rows.size()) {
+			eventLog.setThread(rows.get(row).thread);
+		}
+	}
+
+	/**
+	 * Summarizes each thread again if events were added or the view was resized.
+	 */
+	private void updateRows() {
+		int size = eventLog.getEvents().size();
+		int width = getTimelineWidth();
+		if(size == rowsSize && width == rowsWidth) {
+			return;
+		}
+
+		rowsSize = size;
+		rowsWidth = width;
+		rows.clear();
+
+		Timeline timeline = eventLog.getTimeline();
+		for(Thread thread:eventLog.getThreads()) {
+			Row row = new Row(thread, width);
+			timeline.summarize(thread, 0, size, row.counts, row.minDepths, row.maxDepths);
+			for(int count:row.counts) {
+				row.maxCount = Math.max(row.maxCount, count);
+			}
+			row.maxDepth = Math.max(timeline.getMaxDepth(thread), 1);
+			rows.add(row);
+		}
+	}
+
+	private void paint(GC gc) {
+		updateRows();
+
+		Rectangle area = canvas.getClientArea();
+		gc.setBackground(canvas.getDisplay().getSystemColor(SWT.COLOR_LIST_BACKGROUND));
+		gc.fillRectangle(area);
+
+		for(int i = 0; i < rows.size(); i++) {
+			Row row = rows.get(i);
+			int top = i * ROW_HEIGHT;
+
+			if(row.thread == eventLog.getThread()) {
+				gc.setBackground(colorCache.getColor(230, 236, 245));
+				gc.fillRectangle(0, top, area.width, ROW_HEIGHT);
+			}
+
+			gc.setForeground(canvas.getDisplay().getSystemColor(SWT.COLOR_LIST_FOREGROUND));
+			gc.drawString(row.thread.getName(), PADDING, top + PADDING, true);
+
+			int bottom = top + ROW_HEIGHT - 2;
+			int height = ROW_HEIGHT - 4;
+			for(int x = 0; x < row.counts.length; x++) {
+				int count = row.counts[x];
+				if(count == 0) {
+					continue;
+				}
+
+				int shade = (int) ((long) (SHADES - 1) * count / row.maxCount);
+				gc.setForeground(getShade(shade));
+
+				int y1 = bottom - height * row.maxDepths[x] / row.maxDepth;
+				int y2 = bottom - height * row.minDepths[x] / row.maxDepth;
+				gc.drawLine(LABEL_WIDTH + x, y1, LABEL_WIDTH + x, Math.max(y2, y1 + 1));
+			}
+		}
+
+		paintEdges(gc);
+
+		int size = eventLog.getEvents().size();
+		if(size > 0) {
+			int x = LABEL_WIDTH + (int) ((long) rowsWidth * Math.min(eventLog.getIndex(), size) / size);
+			gc.setForeground(colorCache.getColor(220, 50, 47));
+			gc.drawLine(x, 0, x, Math.max(rows.size() * ROW_HEIGHT, area.height));
+		}
+	}
+
+	/**
+	 * Draws the happens-before edges, skipping evenly through them if there are more than
+	 * MAX_EDGES.
+	 */
+	private void paintEdges(GC gc) {
+		int size = eventLog.getEvents().size();
+		if(size == 0 || rowsWidth <= 0) {
+			return;
+		}
+
+		Map<Thread, Integer> rowIndexes = new IdentityHashMap<>();
+		for(int i = 0; i < rows.size(); i++) {
+			rowIndexes.put(rows.get(i).thread, i);
+		}
+
+		List<Event> events = eventLog.getEvents();
+		List<Edge> edges = eventLog.getHappensBefore().getEdges();
+		int step = Math.max(1, edges.size() / MAX_EDGES);
+
+		gc.setForeground(colorCache.getColor(133, 153, 0));
+		for(int i = 0; i < edges.size(); i += step) {
+			Edge edge = edges.get(i);
+			Integer fromRow = rowIndexes.get(events.get(edge.getFromOffset()).thread);
+			Integer toRow = rowIndexes.get(events.get(edge.getToOffset()).thread);
+			if(fromRow == null || toRow == null) {
+				continue;
+			}
+
+			int x1 = LABEL_WIDTH + (int) ((long) rowsWidth * edge.getFromOffset() / size);
+			int x2 = LABEL_WIDTH + (int) ((long) rowsWidth * edge.getToOffset() / size);
+			gc.drawLine(x1, fromRow * ROW_HEIGHT + ROW_HEIGHT / 2, x2, toRow * ROW_HEIGHT + ROW_HEIGHT / 2);
+		}
+	}
+
+	/**
+	 * Returns a blue that gets darker with each shade.
+	 */
+	private Color getShade(int shade) {
+		double t = (double) shade / (SHADES - 1);
+		return colorCache.getColor((int) (150 - 120 * t), (int) (180 - 110 * t), (int) (230 - 60 * t));
+	}
+
+	public Control getControl() {
+		return canvas;
+	}
+}
@@ -6,6 +6,9 @@ import java.util.Optional;
  * Finds matches brackets in a text string.
  */
 public class BracketMatcher {
+	static final char[] START_CHARS = { '(', '{', '[', '<' };
+	static final char[] END_CHARS = { ')', '}', ']', '>' };
+	
 	/**
 	 * Returns the position of the matching bracket for the char at offset, if there is
 	 * a match.
@@ -13,15 +16,12 @@ public class BracketMatcher {
 	public Optional<Integer> getMatchingParen(String text, int offset) {
 		char starting = text.charAt(offset);
 		
-		char[] startChars = { '(', '{', '[', '<' };
-		char[] endChars = { ')', '}', ']', '>' };
-		
-		for(int x = 0; x < startChars.length; x++) {
-			if(starting == startChars[x]) {
-				return getMatchingParen(text, starting, endChars[x], offset, 1);
+		for(int x = 0; x < START_CHARS.length; x++) {
+			if(starting == START_CHARS[x]) {
+				return getMatchingParen(text, starting, END_CHARS[x], offset, 1);
 			}
-			if(starting == endChars[x]) {
-				return getMatchingParen(text, starting, startChars[x], offset, -1);
+			if(starting == END_CHARS[x]) {
+				return getMatchingParen(text, starting, START_CHARS[x], offset, -1);
 			}
 		}
 		
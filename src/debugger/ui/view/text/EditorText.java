@@ -1,18 +1,20 @@
 package debugger.ui.view.text;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.custom.Bullet;
 import org.eclipse.swt.custom.CaretEvent;
 import org.eclipse.swt.custom.CaretListener;
-import org.eclipse.swt.custom.ST;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Color;
-import org.eclipse.swt.graphics.GlyphMetrics;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
@@ -20,30 +22,74 @@ import org.eclipse.swt.widgets.Display;
 
 import debugger.ui.common.ColorCache;
 import debugger.ui.common.FontList;
+import debugger.ui.common.layout.GridDataBuilder;
+import debugger.ui.common.layout.GridLayoutBuilder;
 import syntaxhighlight.ParseResult;
-import syntaxhighlight.Style;
 import syntaxhighlight.Theme;
 import syntaxhighlighter.SyntaxHighlighterParser;
 import syntaxhighlighter.brush.Brush;
 
 public class EditorText {
+	private static final ExecutorService highlightExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Syntax Highlighter");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final Display display;
+	private final Composite composite;
 	private final StyledText styledText;
+	private final LineNumberRuler lineNumberRuler;
 	private final ColorCache colorCache;
 	
 	private Brush brush = null;
 	private final Theme theme = new ThemeSublime();
-	private StyleRange[] syntaxHighlightingRanges = new StyleRange[0];
+	private final Map<String, Color> styleColors = new HashMap<>();
+	private final Color plainColor;
+	private TextIndex textIndex = TextIndex.EMPTY;
+	private final List<StyleRange> highlightRanges = new ArrayList<>();
+	private int executionLine = -1;
+	private int caretLine = 0;
+	
+	private Future<?> highlightTask;
+	private int highlightGeneration;
+	private Consumer<TextIndex> highlightingListener;
 	
 	public EditorText(Composite parent) {
-		colorCache = new ColorCache(Display.getCurrent());
+		display = Display.getCurrent();
+		colorCache = new ColorCache(display);
 		
-		styledText = new StyledText(parent, SWT.H_SCROLL | SWT.V_SCROLL);
+		theme.getStyles().forEach((key, style) -> {
+			if(style.getColor() != null) {
+				styleColors.put(key, colorCache.getColor(style.getColor()));
+			}
+		});
+		plainColor = colorCache.getColor(theme.getPlain().getColor());
+		
+		composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(new GridLayoutBuilder().numColumns(2).horizontalSpacing(0).marginWidth(0).marginHeight(0).build());
+		
+		styledText = new StyledText(composite, SWT.H_SCROLL | SWT.V_SCROLL);
 		styledText.setMargins(2, 1, 2, 1);
 		styledText.setTabs(4);
 		
 		styledText.setFont(FontList.MONO_NORMAL);
+		
+		lineNumberRuler = new LineNumberRuler(composite, styledText, colorCache.getColor(70, 80, 90), colorCache.getColor(theme.getBackground()), createHeatColors(8));
+		lineNumberRuler.getControl().moveAbove(styledText);
+		styledText.setLayoutData(new GridDataBuilder().fillHorizontal().fillVertical().build());
+		
+		styledText.addLineBackgroundListener(event -> {
+			int line = styledText.getLineAtOffset(event.lineOffset);
+			if(line == executionLine) {
+				event.lineBackground = colorCache.getColor(73, 72, 62);
+			} else if(line == caretLine) {
+				event.lineBackground = colorCache.getColor(47, 48, 42);
+			}
+		});
 
 		styledText.addDisposeListener(colorCache);
+		styledText.addDisposeListener(e -> cancelSyntaxHighlighting());
 		
 		styledText.setEditable(false);
 		
@@ -52,15 +98,16 @@ public class EditorText {
 				// Delay refreshing line style to ensure the new line count is used when deleting lines.
 				Display.getCurrent().asyncExec(new Runnable() {
 					public void run() {
-						refreshStyle();
-						refreshLineStyles();
+						refreshHighlights();
+						refreshCaretLine();
 					}
 				});
 			}
 		});
+		
+		styledText.getVerticalBar().addListener(SWT.Selection, event -> refreshHighlights());
 
 		refreshStyle();
-		refreshLineStyles();
 	}
 	
 	/**
@@ -71,60 +118,197 @@ public class EditorText {
 	}
 
 	/**
-	 * Refresh the line styles including the current line highlight, and line numbers.
+	 * Moves the current line highlight to the line containing the caret, redrawing only the
+	 * previous and new lines.
 	 */
-	private void refreshLineStyles() {
+	private void refreshCaretLine() {
 		int line = styledText.getLineAtOffset(styledText.getCaretOffset());
-		int maxLine = styledText.getLineCount();
-		
-		int lineCountWidth = Math.max(String.valueOf(maxLine).length(), 3);
+		if(line != caretLine) {
+			redrawLine(caretLine);
+			caretLine = line;
+			redrawLine(caretLine);
+		}
+	}
+	
+	/**
+	 * Highlights the line being executed, redrawing only the previous and new lines.
+	 */
+	public void setExecutionLine(int line) {
+		if(line == executionLine) {
+			return;
+		}
 		
-		// Update line numbers.
-		StyleRange style = new StyleRange();
-		style.metrics = new GlyphMetrics(0, 0, lineCountWidth * 8 + 5);
-		style.foreground = colorCache.getColor(70, 80, 90);
-		Bullet bullet = new Bullet(ST.BULLET_NUMBER, style);
-		styledText.setLineBullet(0, maxLine, null);
-		styledText.setLineBullet(0, maxLine, bullet);
+		redrawLine(executionLine);
+		executionLine = line;
+		redrawLine(executionLine);
 		
-		// Update current line highlight.
-		int lineCount = styledText.getContent().getLineCount();
-		styledText.setLineBackground(0, lineCount, colorCache.getColor(theme.getBackground()));
-		styledText.setLineBackground(line, 1, colorCache.getColor(47, 48, 42));
+		if(executionLine >= 0 && executionLine < styledText.getLineCount()) {
+			showLine(executionLine);
+		}
+	}
+	
+	/**
+	 * Redraws the background and text of a single line.
+	 */
+	private void redrawLine(int line) {
+		if(line >= 0 && line < styledText.getLineCount()) {
+			int y = styledText.getLinePixel(line);
+			styledText.redraw(0, y, styledText.getClientArea().width, styledText.getLineHeight(), true);
+		}
+	}
+	
+	/**
+	 * Scrolls a line into the middle of the view if it isn't already visible.
+	 */
+	private void showLine(int line) {
+		int topLine = styledText.getTopIndex();
+		int visibleLines = styledText.getClientArea().height / styledText.getLineHeight();
+		if(line < topLine || line >= topLine + visibleLines) {
+			styledText.setTopIndex(Math.max(0, line - visibleLines / 2));
+		}
+	}
+	
+	/**
+	 * Returns colours from dim to bright for the heat gutter.
+	 */
+	private Color[] createHeatColors(int levels) {
+		Color[] colors = new Color[levels];
+		for(int i = 0; i < levels; i++) {
+			double t = (double) i / (levels - 1);
+			colors[i] = colorCache.getColor(
+				(int) (90 + (253 - 90) * t),
+				(int) (70 + (151 - 70) * t),
+				(int) (40 + (31 - 40) * t)
+			);
+		}
+		return colors;
 	}
 	
 	/**
-	 * Updates the syntax highlighting styles.
+	 * Sets the number of times each line was executed, indexed by one-based line number,
+	 * to show in the heat gutter beside the line numbers.
+	 */
+	public void setLineCounts(int[] lineCounts) {
+		lineNumberRuler.setLineCounts(lineCounts);
+	}
+	
+	/**
+	 * Starts updating the syntax highlighting styles on the highlighter thread, cancelling any
+	 * update still in progress. The visible lines are parsed and applied first, followed by the
+	 * whole text.
 	 */
 	private void updateSyntaxHighlightingRanges() {
+		cancelSyntaxHighlighting();
+		
+		// Clear the previous index, which may not match the current text.
+		textIndex = TextIndex.EMPTY;
+		
 		if(brush == null) return;
 		
-		// Set syntax highlighting.
-		SyntaxHighlighterParser parser = new SyntaxHighlighterParser(brush);
-		List<ParseResult> results = filterResults(parser.parse(null, styledText.getText()));
+		int generation = highlightGeneration;
+		Brush brush = this.brush;
+		String text = styledText.getText();
+		
+		Point visibleOffsets = getVisibleOffsets();
+		int visibleStart = visibleOffsets.x;
+		int visibleEnd = visibleOffsets.y;
 		
+		highlightTask = highlightExecutor.submit(() -> {
+			if(visibleStart > 0 || visibleEnd < text.length()) {
+				StyleRange[] visibleRanges = createStyleRanges(parse(brush, text.substring(visibleStart, visibleEnd)), visibleStart);
+				applySyntaxHighlighting(generation, visibleRanges, visibleStart, visibleEnd - visibleStart);
+			}
+			
+			if(!Thread.currentThread().isInterrupted()) {
+				TextIndex textIndex = new TextIndex(text, createStyleRanges(parse(brush, text), 0));
+				applySyntaxHighlighting(generation, textIndex);
+			}
+		});
+	}
+	
+	private void cancelSyntaxHighlighting() {
+		highlightGeneration++;
+		
+		if(highlightTask != null) {
+			highlightTask.cancel(true);
+			highlightTask = null;
+		}
+	}
+	
+	/**
+	 * Parses the text with the brush, returning results without overlapping offsets.
+	 */
+	private List<ParseResult> parse(Brush brush, String text) {
+		SyntaxHighlighterParser parser = new SyntaxHighlighterParser(brush);
+		return filterResults(parser.parse(null, text));
+	}
+	
+	/**
+	 * Creates style ranges from the parse results, offset by the start of the parsed text.
+	 * Uses only the precomputed style colors so that it can be run from the highlighter thread.
+	 */
+	private StyleRange[] createStyleRanges(List<ParseResult> results, int offset) {
 		StyleRange[] styleRanges = new StyleRange[results.size()];
 		for(int i = 0; i < styleRanges.length; i++) {
 			ParseResult result = results.get(i);
 			
 			StyleRange range = new StyleRange();
-			range.start = result.getOffset();
+			range.start = result.getOffset() + offset;
 			range.length = result.getLength();
 			range.fontStyle = SWT.NORMAL;
-			
-			Style foregroundStyle = theme.getStyles().get(result.getStyleKeys().get(0));
-			if(foregroundStyle != null) {
-				java.awt.Color foreground = foregroundStyle.getColor();
-				range.foreground = colorCache.getColor(foreground);
-			} else {
-				java.awt.Color normal = theme.getPlain().getColor();
-				range.foreground = colorCache.getColor(normal);
-			}
+			range.foreground = styleColors.getOrDefault(result.getStyleKeys().get(0), plainColor);
 			
 			styleRanges[i] = range;
 		}
-		
-		this.syntaxHighlightingRanges = styleRanges;
+		return styleRanges;
+	}
+	
+	/**
+	 * Applies the style ranges of a region on the display thread if they are still current.
+	 */
+	private void applySyntaxHighlighting(int generation, StyleRange[] ranges, int start, int length) {
+		display.asyncExec(() -> {
+			if(!styledText.isDisposed() && generation == highlightGeneration) {
+				styledText.replaceStyleRanges(start, length, ranges);
+			}
+		});
+	}
+	
+	/**
+	 * Applies the index of the whole text on the display thread if it is still current.
+	 */
+	private void applySyntaxHighlighting(int generation, TextIndex textIndex) {
+		display.asyncExec(() -> {
+			if(!styledText.isDisposed() && generation == highlightGeneration) {
+				highlightTask = null;
+				this.textIndex = textIndex;
+				refreshStyle();
+				if(highlightingListener != null) {
+					highlightingListener.accept(textIndex);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Sets a listener that receives the text index once the syntax highlighting has been
+	 * computed for the whole text.
+	 */
+	public void setHighlightingListener(Consumer<TextIndex> highlightingListener) {
+		this.highlightingListener = highlightingListener;
+	}
+	
+	/**
+	 * Returns the offsets of the first visible character, and the character after the last visible line.
+	 */
+	private Point getVisibleOffsets() {
+		int lineCount = styledText.getLineCount();
+		int visibleLines = styledText.getClientArea().height / styledText.getLineHeight() + 1;
+		int topLine = styledText.getTopIndex();
+		int bottomLine = Math.min(lineCount - 1, topLine + visibleLines);
+		int start = styledText.getOffsetAtLine(topLine);
+		int end = (bottomLine + 1 < lineCount) ? styledText.getOffsetAtLine(bottomLine + 1) : styledText.getCharCount();
+		return new Point(start, end);
 	}
 	
 	/**
@@ -140,52 +324,52 @@ public class EditorText {
 		styledText.setForeground(colorCache.getColor(normal));
 		
 		// Set syntax highlighting.
-		styledText.setStyleRanges(syntaxHighlightingRanges);
+		styledText.setStyleRanges(textIndex.getStyleRanges());
+		highlightRanges.clear();
+		
+		refreshHighlights();
+	}
+	
+	/**
+	 * Refresh the bracket and matching word highlighting. Only the previously highlighted ranges
+	 * are restored to their syntax highlighting, rather than resetting the style of the whole text.
+	 */
+	private void refreshHighlights() {
+		int charCount = styledText.getCharCount();
+		for(StyleRange range:highlightRanges) {
+			if(range.start + range.length <= charCount) {
+				styledText.replaceStyleRanges(range.start, range.length, textIndex.getStyleRanges(range.start, range.length));
+			}
+		}
+		highlightRanges.clear();
 		
 		// Set bracket highlighting.
 		if(styledText.getCaretOffset() > 0) {
-			String text = styledText.getText();
-			
-			BracketMatcher bracketMatcher = new BracketMatcher();
-			Optional<Integer> match = bracketMatcher.getMatchingParen(text, styledText.getCaretOffset() - 1);
-			if(match.isPresent()) {
-				int x = match.get();
-
-				StyleRange range = new StyleRange();
-				range.start = x;
-				range.length = 1;
-				range.foreground = getForegroundAt(x);
-				range.borderStyle = SWT.BORDER_SOLID;
-				range.borderColor = colorCache.getColor(150, 150, 150);
-				styledText.setStyleRange(range);
+			int match = textIndex.getMatchingBracket(styledText.getCaretOffset() - 1);
+			if(match >= 0) {
+				addHighlight(match, 1);
 			}
 		}
 		
-		// Set matching word highlighting
+		// Set matching word highlighting within the visible lines.
 		String selected = styledText.getSelectionText();
 		if(selected.matches("[\\w]+")) {
-			String text = styledText.getText();
-			
-			int index = -1;
-			while((index = text.indexOf(selected, index + 1)) >= 0) {
-				StyleRange range = new StyleRange();
-				range.start = index;
-				range.length = selected.length();
-				range.foreground = getForegroundAt(index);
-				range.borderStyle = SWT.BORDER_SOLID;
-				range.borderColor = colorCache.getColor(150, 150, 150);
-				styledText.setStyleRange(range);
+			Point visibleOffsets = getVisibleOffsets();
+			for(int offset:textIndex.getWordOffsets(selected, visibleOffsets.x, visibleOffsets.y)) {
+				addHighlight(offset, selected.length());
 			}
 		}
 	}
 	
-	private Color getForegroundAt(int index) {
-		for(StyleRange range:syntaxHighlightingRanges) {
-			if(range.start <= index && range.start + range.length > index) {
-				return range.foreground;
-			}
-		}
-		return null;
+	private void addHighlight(int start, int length) {
+		StyleRange range = new StyleRange();
+		range.start = start;
+		range.length = length;
+		range.foreground = textIndex.getForegroundAt(start);
+		range.borderStyle = SWT.BORDER_SOLID;
+		range.borderColor = colorCache.getColor(150, 150, 150);
+		styledText.setStyleRange(range);
+		highlightRanges.add(range);
 	}
 	
 	/**
@@ -223,7 +407,7 @@ public class EditorText {
 	}
 	
 	public Control getControl() {
-		return styledText;
+		return composite;
 	}
 	
 	public Brush getBrush() {
@@ -234,7 +418,35 @@ public class EditorText {
 		this.brush = brush;
 		updateSyntaxHighlightingRanges();
 		refreshStyle();
-		refreshLineStyles();
+	}
+	
+	/**
+	 * Sets the brush along with the index previously computed for the current text, to avoid
+	 * parsing the text again.
+	 */
+	public void setBrush(Brush brush, TextIndex textIndex) {
+		cancelSyntaxHighlighting();
+		this.brush = brush;
+		this.textIndex = textIndex;
+		refreshStyle();
+	}
+	
+	/**
+	 * Returns the identifier at or just before the caret, or null if there isn't one.
+	 */
+	public String getWordAtCaret() {
+		int caret = styledText.getCaretOffset();
+		int line = styledText.getLineAtOffset(caret);
+		String text = styledText.getLine(line);
+		int start = caret - styledText.getOffsetAtLine(line);
+		int end = start;
+		while(start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+			start--;
+		}
+		while(end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+			end++;
+		}
+		return (start < end) ? text.substring(start, end) : null;
 	}
 	
 	public StyledText getStyledText() {
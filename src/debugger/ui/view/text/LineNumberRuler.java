@@ -0,0 +1,153 @@
+package debugger.ui.view.text;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+
+/**
+ * Paints line numbers beside a StyledText. Only the visible lines are painted, and the ruler
+ * is only redrawn when the text scrolls or its line count changes. Lines with hit counts are
+ * marked by a heat bar at the left edge, coloured by the count relative to the highest count.
+ */
+class LineNumberRuler {
+	private static final int PADDING = 5;
+	private static final int HEAT_WIDTH = 4;
+
+	private final Canvas canvas;
+	private final StyledText styledText;
+	private final Color foreground;
+	private final Color background;
+	private final Color[] heatColors;
+
+	private int lastTopPixel = -1;
+	private int lastLineCount = -1;
+	private int digits;
+	private int[] lineCounts = new int[0];
+	private double maxHeat;
+
+	public LineNumberRuler(Composite parent, StyledText styledText, Color foreground, Color background, Color[] heatColors) {
+		this.styledText = styledText;
+		this.foreground = foreground;
+		this.background = background;
+		this.heatColors = heatColors;
+
+		canvas = new Canvas(parent, SWT.NO_BACKGROUND);
+		canvas.addPaintListener(event -> paint(event.gc));
+		canvas.addMouseMoveListener(event -> updateToolTip(event.y));
+
+		styledText.addPaintListener(event -> {
+			int topPixel = styledText.getTopPixel();
+			int lineCount = styledText.getLineCount();
+			if(topPixel != lastTopPixel || lineCount != lastLineCount) {
+				lastTopPixel = topPixel;
+				lastLineCount = lineCount;
+				updateWidth(lineCount);
+				canvas.redraw();
+			}
+		});
+
+		updateWidth(styledText.getLineCount());
+	}
+
+	/**
+	 * Resizes the ruler to fit the number of digits in the line count.
+	 */
+	private void updateWidth(int lineCount) {
+		int digits = Math.max(String.valueOf(lineCount).length(), 3);
+		if(digits != this.digits) {
+			this.digits = digits;
+
+			GC gc = new GC(canvas);
+			gc.setFont(styledText.getFont());
+			int width = gc.getFontMetrics().getAverageCharWidth() * digits + PADDING * 2 + HEAT_WIDTH;
+			gc.dispose();
+
+			GridData gridData = new GridData(SWT.FILL, SWT.FILL, false, true);
+			gridData.widthHint = width;
+			canvas.setLayoutData(gridData);
+			canvas.getParent().layout();
+		}
+	}
+
+	private void paint(GC gc) {
+		Rectangle area = canvas.getClientArea();
+
+		gc.setBackground(background);
+		gc.fillRectangle(area);
+
+		gc.setFont(styledText.getFont());
+		gc.setForeground(foreground);
+
+		int lineCount = styledText.getLineCount();
+		for(int line = styledText.getTopIndex(); line < lineCount; line++) {
+			int y = styledText.getLinePixel(line);
+			if(y > area.height) {
+				break;
+			}
+
+			int count = getLineCount(line);
+			if(count > 0) {
+				gc.setBackground(getHeatColor(count));
+				gc.fillRectangle(0, y, HEAT_WIDTH, styledText.getLineHeight());
+			}
+			
+			String number = String.valueOf(line + 1);
+			int x = area.width - gc.textExtent(number).x - PADDING;
+			gc.drawString(number, x, y, true);
+		}
+	}
+
+	/**
+	 * Returns the hit count of a zero-based line, where the counts are indexed by line number.
+	 */
+	private int getLineCount(int line) {
+		return (line + 1 < lineCounts.length) ? lineCounts[line + 1] : 0;
+	}
+	
+	/**
+	 * Returns the colour for a hit count, on a log scale so that rarely hit lines are still visible.
+	 */
+	private Color getHeatColor(int count) {
+		int level = (int) (Math.log(count + 1) / maxHeat * (heatColors.length - 1));
+		return heatColors[Math.max(0, Math.min(level, heatColors.length - 1))];
+	}
+	
+	private void updateToolTip(int y) {
+		int line = styledText.getLineIndex(y);
+		int count = getLineCount(line);
+		String toolTip = (count > 0) ? (count + (count == 1 ? " hit" : " hits")) : null;
+		if(!String.valueOf(toolTip).equals(String.valueOf(canvas.getToolTipText()))) {
+			canvas.setToolTipText(toolTip);
+		}
+	}
+	
+	/**
+	 * Sets the hit counts for each line, indexed by one-based line number.
+	 */
+	public void setLineCounts(int[] lineCounts) {
+		if(Arrays.equals(lineCounts, this.lineCounts)) {
+			return;
+		}
+		
+		this.lineCounts = lineCounts;
+		
+		int max = 0;
+		for(int count:lineCounts) {
+			max = Math.max(max, count);
+		}
+		maxHeat = Math.log(max + 1);
+		
+		canvas.redraw();
+	}
+	
+	public Canvas getControl() {
+		return canvas;
+	}
+}
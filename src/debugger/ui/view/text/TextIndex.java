@@ -0,0 +1,176 @@
+package debugger.ui.view.text;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.graphics.Color;
+
+import debugger.util.IntList;
+
+/**
+ * The syntax highlighting of a text, along with a bracket pair table and word occurrence
+ * index built in the same pass. Lookups use binary search so that they don't scan the text.
+ */
+public class TextIndex {
+	public static final TextIndex EMPTY = new TextIndex("", new StyleRange[0]);
+
+	private final StyleRange[] styleRanges;
+	private final int[] bracketOffsets;
+	private final int[] bracketMatches;
+	private final Map<String, int[]> wordOffsets = new HashMap<>();
+
+	/**
+	 * Creates an index of the text, with the style ranges in order and not overlapping.
+	 */
+	public TextIndex(String text, StyleRange[] styleRanges) {
+		this.styleRanges = styleRanges;
+
+		IntList bracketOffsets = new IntList();
+		IntList bracketMatches = new IntList();
+		indexBrackets(text, bracketOffsets, bracketMatches);
+		this.bracketOffsets = bracketOffsets.toArray();
+		this.bracketMatches = bracketMatches.toArray();
+
+		indexWords(text);
+	}
+
+	/**
+	 * Pairs each bracket with its match, keeping a stack of open brackets for each type. This
+	 * matches the counting done by BracketMatcher.getMatchingParen in either direction.
+	 */
+	private static void indexBrackets(String text, IntList offsets, IntList matches) {
+		IntList[] openBrackets = new IntList[BracketMatcher.START_CHARS.length];
+		for(int x = 0; x < openBrackets.length; x++) {
+			openBrackets[x] = new IntList();
+		}
+
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			for(int x = 0; x < BracketMatcher.START_CHARS.length; x++) {
+				if(c == BracketMatcher.START_CHARS[x]) {
+					openBrackets[x].add(offsets.size());
+					offsets.add(i);
+					matches.add(-1);
+				} else if(c == BracketMatcher.END_CHARS[x]) {
+					offsets.add(i);
+					if(openBrackets[x].isEmpty()) {
+						matches.add(-1);
+					} else {
+						int open = openBrackets[x].removeLast();
+						matches.set(open, i);
+						matches.add(offsets.get(open));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the offsets of each word, where a word is a run of characters matching [\w].
+	 */
+	private void indexWords(String text) {
+		Map<String, IntList> words = new HashMap<>();
+
+		int start = -1;
+		for(int i = 0; i <= text.length(); i++) {
+			boolean wordChar = (i < text.length()) && isWordChar(text.charAt(i));
+			if(wordChar && start < 0) {
+				start = i;
+			} else if(!wordChar && start >= 0) {
+				words.computeIfAbsent(text.substring(start, i), k -> new IntList()).add(start);
+				start = -1;
+			}
+		}
+
+		words.forEach((word, offsets) -> wordOffsets.put(word, offsets.toArray()));
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	public StyleRange[] getStyleRanges() {
+		return styleRanges;
+	}
+
+	/**
+	 * Returns the style ranges overlapping the region, clipped to it.
+	 */
+	public StyleRange[] getStyleRanges(int start, int length) {
+		int end = start + length;
+
+		int first = findStyleRange(start);
+		if(first < 0) {
+			first = -first - 1;
+		}
+
+		int last = first;
+		while(last < styleRanges.length && styleRanges[last].start < end) {
+			last++;
+		}
+
+		StyleRange[] ranges = new StyleRange[last - first];
+		for(int i = 0; i < ranges.length; i++) {
+			StyleRange range = (StyleRange) styleRanges[first + i].clone();
+			int rangeEnd = Math.min(range.start + range.length, end);
+			range.start = Math.max(range.start, start);
+			range.length = rangeEnd - range.start;
+			ranges[i] = range;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the foreground of the style range at an offset, or null if it isn't styled.
+	 */
+	public Color getForegroundAt(int offset) {
+		int index = findStyleRange(offset);
+		return (index >= 0) ? styleRanges[index].foreground : null;
+	}
+
+	/**
+	 * Returns the index of the style range containing the offset, or (-insertionPoint - 1) where
+	 * insertionPoint is the index of the first range after the offset.
+	 */
+	private int findStyleRange(int offset) {
+		int low = 0;
+		int high = styleRanges.length - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			StyleRange range = styleRanges[mid];
+			if(range.start + range.length <= offset) {
+				low = mid + 1;
+			} else if(range.start > offset) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -low - 1;
+	}
+
+	/**
+	 * Returns the offset of the bracket matching the bracket at an offset, or -1 if there isn't one.
+	 */
+	public int getMatchingBracket(int offset) {
+		int index = Arrays.binarySearch(bracketOffsets, offset);
+		return (index >= 0) ? bracketMatches[index] : -1;
+	}
+
+	/**
+	 * Returns the offsets of a word within [start, end), in ascending order.
+	 */
+	public int[] getWordOffsets(String word, int start, int end) {
+		int[] offsets = wordOffsets.get(word);
+		if(offsets == null) {
+			return new int[0];
+		}
+
+		int from = IntList.lowerBound(offsets, 0, offsets.length, start);
+		int to = IntList.lowerBound(offsets, from, offsets.length, end);
+		return Arrays.copyOfRange(offsets, from, to);
+	}
+}
@@ -9,12 +9,11 @@ public class CollectionUtil {
 	}
 	
 	public static <T> int lastIndexOf(List<T> list, Predicate<? super T> filter) {
-		int index = -1;
-		for(int i = 0; i < list.size(); i++) {
+		for(int i = list.size() - 1; i >= 0; i--) {
 			if(filter.test(list.get(i))) {
-				index = i;
+				return i;
 			}
 		}
-		return index;
+		return -1;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package debugger.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints.
+ */
+public class IntList {
+	private int[] values;
+	private int size;
+
+	public IntList() {
+		this(16);
+	}
+
+	public IntList(int capacity) {
+		values = new int[Math.max(capacity, 1)];
+	}
+
+	public void add(int value) {
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	public int get(int index) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return values[index];
+	}
+
+	public void set(int index, int value) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		values[index] = value;
+	}
+
+	public int removeLast() {
+		return values[--size];
+	}
+
+	public int getLast() {
+		return values[size - 1];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Adds all the values of another list to the end of this list.
+	 */
+	public void addAll(IntList list) {
+		if(size + list.size > values.length) {
+			values = Arrays.copyOf(values, Math.max(size + list.size, size * 2));
+		}
+		System.arraycopy(list.values, 0, values, size, list.size);
+		size += list.size;
+	}
+
+	/**
+	 * Returns a list of the values of two lists sorted in ascending order, also in ascending order.
+	 */
+	public static IntList merge(IntList a, IntList b) {
+		IntList merged = new IntList(a.size + b.size);
+		int i = 0;
+		int j = 0;
+		while(i < a.size && j < b.size) {
+			merged.add(a.values[i] <= b.values[j] ? a.values[i++] : b.values[j++]);
+		}
+		while(i < a.size) {
+			merged.add(a.values[i++]);
+		}
+		while(j < b.size) {
+			merged.add(b.values[j++]);
+		}
+		return merged;
+	}
+
+	/**
+	 * Returns the index of the first value greater than or equal to the given value, assuming
+	 * the list is sorted in ascending order. Returns size() if there is no such value.
+	 */
+	public int lowerBound(int value) {
+		return lowerBound(values, 0, size, value);
+	}
+
+	/**
+	 * Returns the index of the first value in array[from, to) greater than or equal to the given
+	 * value, assuming the range is sorted in ascending order. Returns to if there is no such value.
+	 */
+	public static int lowerBound(int[] array, int from, int to, int value) {
+		int low = from;
+		int high = to;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(array[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,138 @@
+package debugger.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import debugger.event.Events.Event;
+import debugger.event.Events.Kind;
+
+class UnprintableClass {
+	@Override
+	public String toString() {
+		throw new IllegalStateException("toString");
+	}
+}
+
+public class FlightRecorderTest extends RecordedClassTest {
+	private Path directory;
+
+	@Before
+	public void before() throws IOException {
+		directory = Files.createTempDirectory("flight");
+	}
+
+	@After
+	public void after() throws IOException {
+		EventLogger.setFlightRecorder(null);
+		for(Path file:Files.list(directory).collect(Collectors.toList())) {
+			Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	public void keepsLastEvents() {
+		FlightRecorder flightRecorder = new FlightRecorder(10, Long.MAX_VALUE, directory);
+		EventLogger.setFlightRecorder(flightRecorder);
+		RecordedClass.sum(100);
+
+		List<Event> events = flightRecorder.getEvents(Thread.currentThread());
+		assertEquals(10, events.size());
+		assertTrue(events.stream().anyMatch(event -> event.kind == Kind.EXIT_WITH_VALUE));
+		assertEquals(0, EventLogger.getEvents().size());
+	}
+
+	@Test
+	public void keepsLastBytes() {
+		FlightRecorder flightRecorder = new FlightRecorder(1000, 480, directory);
+		EventLogger.setFlightRecorder(flightRecorder);
+		RecordedClass.sum(100);
+
+		assertTrue(flightRecorder.getEvents(Thread.currentThread()).size() <= 10);
+	}
+
+	@Test
+	public void dumpOnException() throws IOException {
+		FlightRecorder flightRecorder = new FlightRecorder(100, Long.MAX_VALUE, directory);
+		EventLogger.setFlightRecorder(flightRecorder);
+		try {
+			RecordedClass.fail();
+		} catch(IllegalStateException e) {
+		}
+
+		assertEquals(1, flightRecorder.getDumpCount());
+		Path file = Files.list(directory).findFirst().get();
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(TraceWriter.HEADER, lines.get(0));
+		assertTrue(lines.get(lines.size() - 1).startsWith("EXIT_WITH_EXCEPTION\t"));
+	}
+
+	@Test
+	public void dumpOnEnter() throws IOException {
+		FlightRecorder flightRecorder = new FlightRecorder(100, Long.MAX_VALUE, directory);
+		flightRecorder.dumpOnEnter("debugger/event/RecordedClass", "sum");
+		EventLogger.setFlightRecorder(flightRecorder);
+		RecordedClass.sum(1);
+		RecordedClass.sum(1);
+
+		assertEquals(2, flightRecorder.getDumpCount());
+	}
+
+	@Test
+	public void dump() throws IOException {
+		FlightRecorder flightRecorder = new FlightRecorder(100, Long.MAX_VALUE, directory);
+		EventLogger.setFlightRecorder(flightRecorder);
+		RecordedClass.sum(1);
+
+		StringWriter writer = new StringWriter();
+		flightRecorder.dump(writer, "test");
+		String[] lines = writer.toString().split("\n");
+		assertEquals("# reason: test", lines[1]);
+		assertEquals("thread " + Thread.currentThread().getName() + " " + flightRecorder.getEvents(Thread.currentThread()).size(), lines[2]);
+	}
+
+	@Test
+	public void dumpDoesNotCallToString() throws IOException {
+		FlightRecorder flightRecorder = new FlightRecorder(100, Long.MAX_VALUE, directory);
+		flightRecorder.dumpOnEnter("debugger/event/RecordedClass", "describe");
+		EventLogger.setFlightRecorder(flightRecorder);
+		RecordedClass.describe(new UnprintableClass());
+
+		assertEquals(1, flightRecorder.getDumpCount());
+		List<String> lines = Files.readAllLines(Files.list(directory).findFirst().get());
+		assertTrue(lines.get(lines.size() - 1).contains("[UnprintableClass-"));
+	}
+
+	@Test
+	public void removesTerminatedThreads() throws InterruptedException, IOException {
+		FlightRecorder flightRecorder = new FlightRecorder(1000, Long.MAX_VALUE, directory);
+		EventLogger.setFlightRecorder(flightRecorder);
+		List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			Thread thread = new Thread(() -> RecordedClass.sum(10));
+			threads.add(thread);
+			thread.start();
+			thread.join();
+		}
+		assertTrue(flightRecorder.getEvents(threads.get(0)).size() > 0);
+
+		StringWriter writer = new StringWriter();
+		flightRecorder.dump(writer, "test");
+		assertTrue(writer.toString().contains("thread " + threads.get(0).getName() + " "));
+		for(Thread thread:threads) {
+			assertEquals(0, flightRecorder.getEvents(thread).size());
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package debugger.event;
+
+public class RecordedClass {
+	public static int sum(int n) {
+		int total = 0;
+		for(int i = 1; i <= n; i++) {
+			total += i;
+		}
+		return total;
+	}
+
+	public static int describe(Object object) {
+		return 1;
+	}
+
+	public static void fail() {
+		throw new IllegalStateException("fail");
+	}
+}
@@ -0,0 +1,22 @@
+package debugger.event;
+
+import org.junit.After;
+import org.junit.Before;
+
+import debugger.instrumentation.Instrumentor;
+
+/**
+ * Instruments RecordedClass and clears the logged events before and after each test.
+ */
+public abstract class RecordedClassTest {
+	@Before
+	public void instrumentRecordedClass() {
+		new Instrumentor().instrumentClass(RecordedClass.class);
+		EventLogger.clear();
+	}
+
+	@After
+	public void clearEvents() {
+		EventLogger.clear();
+	}
+}
@@ -0,0 +1,59 @@
+package debugger.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import debugger.event.Events.EnterMethodEvent;
+import debugger.event.Events.Event;
+import debugger.event.Events.Kind;
+
+public class SamplerTest extends RecordedClassTest {
+	@After
+	public void after() {
+		EventLogger.setSampler(null);
+	}
+
+	private static long count(List<Event> events, Kind kind) {
+		return events.stream().filter(event -> event.kind == kind).count();
+	}
+
+	@Test
+	public void sampledInvocations() {
+		RecordedClass.sum(10);
+		long storesPerCall = count(EventLogger.getEvents(), Kind.STORE);
+		EventLogger.clear();
+
+		EventLogger.setSampler(new Sampler(1e9, 4, Long.MAX_VALUE));
+		for(int i = 0; i < 8; i++) {
+			RecordedClass.sum(10);
+		}
+
+		List<Event> events = EventLogger.getEvents();
+		assertEquals(8, count(events, Kind.ENTER_METHOD));
+		assertEquals(8, count(events, Kind.EXIT_WITH_VALUE));
+		assertEquals(2 * storesPerCall, count(events, Kind.STORE));
+	}
+
+	@Test
+	public void adaptInterval() {
+		RecordedClass.sum(10);
+		long storesPerCall = count(EventLogger.getEvents(), Kind.STORE);
+		EventLogger.clear();
+
+		Sampler sampler = new Sampler(1, 1, 0);
+		EventLogger.setSampler(sampler);
+		for(int i = 0; i < 100; i++) {
+			RecordedClass.sum(10);
+		}
+
+		EnterMethodEvent enter = (EnterMethodEvent) EventLogger.getEvents().get(0);
+		assertTrue(sampler.getInterval(enter.className, enter.name, enter.descriptor) > 1);
+		assertEquals(100, count(EventLogger.getEvents(), Kind.ENTER_METHOD));
+		assertTrue(count(EventLogger.getEvents(), Kind.STORE) < 50 * storesPerCall);
+	}
+}
@@ -0,0 +1,123 @@
+package debugger.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import debugger.event.Events.Event;
+import debugger.event.Events.Kind;
+
+public class SessionTest extends RecordedClassTest {
+	@Test
+	public void startAndStop() {
+		Session first = EventLogger.startSession();
+		RecordedClass.sum(5);
+		Session stopped = EventLogger.stopSession();
+
+		assertEquals(first, stopped);
+		assertTrue(stopped.isStopped());
+		int size = stopped.getEvents().size();
+		assertTrue(size > 0);
+
+		RecordedClass.sum(5);
+		assertEquals(size, stopped.getEvents().size());
+		assertEquals(0, EventLogger.getEvents().size());
+
+		Session second = EventLogger.startSession();
+		assertTrue(first != second);
+		assertTrue(second.getId() > first.getId());
+		RecordedClass.sum(5);
+		assertEquals(size, second.getEvents().size());
+		assertEquals(size, first.getEvents().size());
+	}
+
+	@Test
+	public void concurrentWriters() throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < 4; i++) {
+			Thread thread = new Thread(() -> {
+				while(running.get()) {
+					RecordedClass.sum(10);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		List<Session> sessions = new ArrayList<>();
+		for(int i = 0; i < 50; i++) {
+			sessions.add(EventLogger.startSession());
+			Thread.sleep(1);
+		}
+		sessions.add(EventLogger.stopSession());
+
+		running.set(false);
+		for(Thread thread:threads) {
+			thread.join();
+		}
+
+		for(Session session:sessions) {
+			assertTrue(session.isStopped());
+			int size = session.getEventBuffer().size();
+			for(Event event:session.getEvents()) {
+				assertTrue(event.kind != null);
+			}
+			assertEquals(size, session.getEventBuffer().size());
+		}
+	}
+
+	@Test
+	public void methodIndexesPerSession() {
+		RecordedClass.sum(1);
+		Session session = EventLogger.startSession();
+		RecordedClass.sum(1);
+		Event enter = session.getEvents().stream().filter(event -> event.kind == Kind.ENTER_METHOD).findFirst().get();
+		assertEquals(1, enter.methodIndex);
+	}
+
+	@Test
+	public void concurrentBufferAdds() throws InterruptedException {
+		EventBuffer buffer = new EventBuffer();
+		buffer.setTimestampBatch(8);
+		List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < 4; i++) {
+			int methodIndex = i;
+			Thread thread = new Thread(() -> {
+				for(int j = 0; j < 10000; j++) {
+					buffer.add(new Events.StoreEvent(0, j, 0, Thread.currentThread(), methodIndex));
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for(Thread thread:threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, buffer.size());
+		int[] next = new int[threads.size()];
+		for(int i = 0; i < buffer.size(); i++) {
+			Events.StoreEvent event = (Events.StoreEvent) buffer.get(i);
+			assertEquals(next[event.methodIndex]++, event.value);
+			assertTrue(buffer.getNanoTime(i) > 0);
+		}
+	}
+
+	@Test
+	public void objectNamesPerSession() {
+		Object first = new Object();
+		Session session = EventLogger.startSession();
+		assertEquals("Object-1", Events.getObjectName(first));
+
+		EventLogger.startSession();
+		assertEquals("Object-1", Events.getObjectName(new Object()));
+		assertEquals("Object-2", Events.getObjectName(first));
+		assertEquals("Object-1", session.getObjectName(first));
+	}
+}
@@ -0,0 +1,82 @@
+package debugger.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import debugger.event.EventLogger;
+import debugger.event.Events.Event;
+import debugger.event.Events.Kind;
+import debugger.instrumentation.Instrumentor;
+
+class MetricsClass {
+	public static int sum(int n) {
+		int total = 0;
+		for(int i = 1; i <= n; i++) {
+			total += i;
+		}
+		return total;
+	}
+}
+
+public class RecorderMetricsTest {
+	private final RecorderMetrics metrics = RecorderMetrics.getInstance();
+
+	@Before
+	public void before() {
+		new Instrumentor().instrumentClass(MetricsClass.class);
+		EventLogger.clear();
+		metrics.reset();
+	}
+
+	@After
+	public void after() {
+		EventLogger.clear();
+	}
+
+	@Test
+	public void eventCounts() {
+		MetricsClass.sum(100);
+
+		List<Event> events = EventLogger.getEvents();
+		assertEquals(events.size(), metrics.getEventCount());
+		for(Kind kind:Kind.values()) {
+			long count = events.stream().filter(event -> event.kind == kind).count();
+			assertEquals(count, metrics.getEventCount(kind));
+		}
+		assertEquals(events.size(), metrics.getBufferSize());
+		assertTrue(metrics.getBufferCapacity() >= events.size());
+	}
+
+	@Test
+	public void instrumentation() {
+		assertTrue(metrics.getTransformNanosByClass().containsKey(MetricsClass.class.getName()));
+		assertTrue(metrics.getMethodsInstrumented() >= 2);
+	}
+
+	@Test
+	public void latencyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1);
+		histogram.record(100);
+		histogram.record(100);
+		histogram.record(5000);
+
+		assertEquals(4, histogram.getCount());
+		assertEquals(1, histogram.getCounts()[0]);
+		assertEquals(2, histogram.getCounts()[6]);
+		assertEquals(128, histogram.getPercentileNanos(0.5));
+		assertEquals(8192, histogram.getPercentileNanos(0.99));
+	}
+
+	@Test
+	public void register() {
+		RecorderMetrics.register();
+		RecorderMetrics.register();
+	}
+}
@@ -1,20 +1,36 @@
 package debugger.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import debugger.event.EventLogger;
+import debugger.event.Events.Event;
+import debugger.event.Events.Kind;
+import debugger.event.Events.PutFieldEvent;
+import debugger.event.Events.SyncEvent;
 import debugger.event.SnapshotCreator;
+import debugger.model.HappensBefore.Edge;
+import debugger.model.ThreadRegistry.ThreadInfo;
+import debugger.model.ValueHistory.ValueChange;
 import debugger.instrumentation.Instrumentor;
 import debugger.instrumentation.util.AsmUtil;
 
@@ -149,6 +165,99 @@ class ArrayListClass {
 		otherList.add(6);
 		Collections.sort(otherList);
 	}
+	
+	public static void f4() {
+		List<Integer> list = new ArrayList<>();
+		list.add(1);
+		List<Integer> full = list;
+		list.clear();
+	}
+}
+
+class FieldClass {
+	int value;
+	
+	public void setValues() {
+		value = 1;
+		value = 2;
+		value = 3;
+	}
+}
+
+class SyncClass {
+	private final Object lock = new Object();
+	private volatile int flag;
+	private int value;
+	
+	public int run() throws InterruptedException {
+		Thread thread = new Thread(this::write);
+		thread.start();
+		thread.join();
+		synchronized(lock) {
+			return value + flag;
+		}
+	}
+	
+	public void write() {
+		synchronized(lock) {
+			value = 1;
+		}
+		flag = 1;
+	}
+}
+
+class QueueClass {
+	private final BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(1);
+	private int taken;
+	
+	public int run() throws InterruptedException {
+		Thread thread = new Thread(this::take);
+		thread.start();
+		queue.put(5);
+		thread.join();
+		return taken;
+	}
+	
+	public void take() {
+		try {
+			taken = queue.take();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
+
+class LockClass {
+	private int count;
+	
+	public synchronized void increment() {
+		count++;
+	}
+	
+	public int run() throws InterruptedException {
+		Thread thread = new Thread(() -> {
+			for(int i = 0; i < 10; i++) {
+				increment();
+			}
+		});
+		thread.start();
+		for(int i = 0; i < 10; i++) {
+			synchronized(this) {
+				count++;
+			}
+		}
+		thread.join();
+		return count;
+	}
+	
+	public int runUncontended() {
+		for(int i = 0; i < 100; i++) {
+			synchronized(this) {
+				count++;
+			}
+		}
+		return count;
+	}
 }
 
 public class EventLogTest {
@@ -160,6 +269,9 @@ public class EventLogTest {
 		new Instrumentor().instrumentClass(InstrumentedClass.class);
 		new Instrumentor().instrumentClass(InstrumentedSubclass.class);
 		new Instrumentor().instrumentClass(ArrayListClass.class);
+		new Instrumentor().instrumentClass(SyncClass.class);
+		new Instrumentor().instrumentClass(LockClass.class);
+		new Instrumentor().instrumentClass(QueueClass.class);
 	}
 	
 	@After
@@ -210,6 +322,204 @@ public class EventLogTest {
 		assertEquals(expectedCallStack, callStack);
 	}
 	
+	@Test
+	public void getLineCounts() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		int[] lineCounts = eventLog.getLineCounts(new File("test/debugger/model/QuickSort.java"));
+		
+		assertEquals(11, lineCounts[8]);
+		assertEquals(6, lineCounts[9]);
+		assertEquals(5, lineCounts[12]);
+		assertEquals(17, lineCounts[16]);
+		assertEquals(17, lineCounts[17] + lineCounts[19]);
+		assertEquals(5, lineCounts[28]);
+		assertEquals(0, eventLog.getLineCounts(new File("test/debugger/model/Other.java")).length);
+	}
+	
+	@Test
+	public void getCallTree() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		Thread thread = Thread.currentThread();
+		CallTree callTree = eventLog.getCallTree();
+		
+		int[] calls = callTree.getChildren(thread, CallTree.ROOT);
+		assertEquals(1, calls.length);
+		assertEquals("debugger/model/QuickSort.sort([[5, 2, 7, 5, 9, 8, 7, 1, 3]]) - [1, 2, 3, 5, 5, 7, 7, 8, 9]", callTree.getNode(thread, calls[0]).toString());
+		
+		int[] children = Arrays.stream(callTree.getChildren(thread, calls[0]))
+			.filter(call -> callTree.getNode(thread, call).getMethodName().equals("sort"))
+			.toArray();
+		assertEquals(2, children.length);
+		assertEquals(callTree.getChildren(thread, children[0]).length, callTree.getChildCount(thread, children[0]));
+		assertEquals("debugger/model/QuickSort.sort([[7, 5, 9, 8, 7]]) - [5, 7, 7, 8, 9]", callTree.getNode(thread, children[1]).toString());
+		
+		assertTrue(callTree.getStartOffset(thread, children[0]) < callTree.getEndOffset(thread, children[0]));
+		assertTrue(callTree.getEndOffset(thread, children[0]) < callTree.getStartOffset(thread, children[1]));
+		assertEquals(0, callTree.getChildren(new Thread(), CallTree.ROOT).length);
+	}
+	
+	@Test
+	public void getThreadInfo() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		ThreadInfo info = eventLog.getThreadInfo(Thread.currentThread());
+		
+		assertEquals(eventLog.getEvents().size(), info.getEventCount());
+		assertEquals(0, info.getFirstOffset());
+		assertEquals(eventLog.getEvents().size() - 1, info.getLastOffset());
+		assertNull(info.getCurrentMethod());
+		assertNull(eventLog.getThreadInfo(new Thread()));
+	}
+	
+	@Test
+	public void getTimeline() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		Thread thread = Thread.currentThread();
+		Timeline timeline = eventLog.getTimeline();
+		int size = eventLog.getEvents().size();
+		
+		int[] counts = new int[1];
+		int[] minDepths = new int[1];
+		int[] maxDepths = new int[1];
+		timeline.summarize(thread, 0, size, counts, minDepths, maxDepths);
+		assertEquals(size, counts[0]);
+		assertEquals(0, minDepths[0]);
+		assertEquals(5, maxDepths[0]);
+		assertEquals(5, timeline.getMaxDepth(thread));
+		
+		counts = new int[7];
+		timeline.summarize(thread, 0, size, counts, new int[7], new int[7]);
+		assertEquals(size, Arrays.stream(counts).sum());
+	}
+	
+	@Test
+	public void search() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		assertEquals(5, eventLog.search("local pivot").length);
+		assertEquals(4, eventLog.search("local result > 5").length);
+		assertEquals(11, eventLog.search("call sort").length);
+		assertEquals(11, eventLog.search("return sort").length);
+		assertEquals(2, eventLog.search("return sort = []").length);
+		assertEquals(2, eventLog.search("return size = 0").length);
+		assertEquals(0, eventLog.search("field pivot").length);
+		
+		for(int offset:eventLog.search("value = 5")) {
+			assertTrue(eventLog.getEvents().get(offset).toString().matches(".*\\b5\\b.*"));
+		}
+		
+		int[] offsets = eventLog.search("return sort = []");
+		assertTrue(offsets[0] < offsets[1]);
+	}
+	
+	@Test
+	public void search_changedCollection() {
+		ArrayListClass.f4();
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		assertEquals(1, eventLog.search("local list = []").length);
+		assertEquals(0, eventLog.search("local full = []").length);
+		assertEquals(1, eventLog.search("local full != []").length);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void search_invalidQuery() {
+		eventLog = new EventLog(new ArrayList<>());
+		eventLog.search("local x > abc");
+	}
+	
+	@Test
+	public void getValueHistory_local() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		eventLog.setThread(Thread.currentThread());
+		
+		int[] returns = eventLog.search("return sort");
+		eventLog.setIndex(returns[returns.length - 1]);
+		
+		List<ValueChange> history = eventLog.getValueHistory("result");
+		assertEquals(10, history.size());
+		assertEquals(1, history.get(0).getValue());
+		assertEquals("[1, 2, 3, 5, 5, 7, 7, 8, 9]", history.get(9).getValue().toString());
+		
+		assertEquals(1, eventLog.getValueHistory("pivot").size());
+		assertEquals(5, eventLog.getValueHistory("pivot").get(0).getValue());
+		
+		int lastWrite = eventLog.getLastWrite("result");
+		assertEquals(history.get(9).getIndex(), lastWrite);
+		eventLog.setIndex(lastWrite + 1);
+		assertEquals(history.get(8).getIndex(), eventLog.getLastWrite("result"));
+	}
+	
+	@Test
+	public void getValueHistory_field() {
+		new Instrumentor().instrumentClass(FieldClass.class);
+		EventLogger.clear();
+		
+		FieldClass object = new FieldClass();
+		object.setValues();
+		eventLog = new EventLog(EventLogger.getEvents());
+		eventLog.setThread(Thread.currentThread());
+		
+		List<ValueChange> history = eventLog.getFieldHistory(object, "value");
+		assertEquals(3, history.size());
+		assertEquals(3, history.get(2).getValue());
+		
+		eventLog.setIndex(history.get(2).getIndex() + 1);
+		assertEquals(3, eventLog.getValueHistory("value").size());
+		assertEquals(history.get(1).getIndex(), eventLog.getLastWrite("value"));
+	}
+	
+	@Test
+	public void getCallStack_liveUpdate() {
+		EventLogger.clear();
+		eventLog = new EventLog(EventLogger.getEventBuffer());
+		assertEquals(0, eventLog.getEvents().size());
+		
+		InstrumentedClass.f();
+		
+		assertEquals(0, eventLog.getEvents().size());
+		assertEquals(true, eventLog.update());
+		assertEquals(false, eventLog.update());
+		assertEquals(EventLogger.getEvents().size(), eventLog.getEvents().size());
+		
+		eventLog.setThread(getThread());
+		String callStack = printCallStack(eventLog.getCallStack());
+		
+		assertEquals("debugger/model/InstrumentedClass.f([]) - 5\n", callStack.split("(?<=\n)")[0]);
+	}
+	
+	@Test
+	public void changeNotificationsCoalesced() {
+		eventLog = new EventLog(new ArrayList<>());
+		
+		List<Runnable> scheduled = new ArrayList<>();
+		List<Set<EventLog.Change>> notifications = new ArrayList<>();
+		
+		eventLog.setNotificationExecutor(scheduled::add);
+		eventLog.addChangeListener(notifications::add);
+		notifications.clear();
+		
+		eventLog.setIndex(1);
+		eventLog.setIndex(2);
+		eventLog.setThread(Thread.currentThread());
+		
+		assertEquals(1, scheduled.size());
+		assertEquals(0, notifications.size());
+		
+		scheduled.get(0).run();
+		
+		assertEquals(List.of(EnumSet.of(EventLog.Change.INDEX, EventLog.Change.THREAD)), notifications);
+	}
+	
 	@Test
 	public void getCallStack_withStaticNonInstrumented() {
 		InstrumentedClass.f();
@@ -413,4 +723,285 @@ public class EventLogTest {
 			}
 		}
 	}
-}
\ No newline at end of file
+	
+	@Test
+	public void getHappensBefore() throws InterruptedException {
+		assertEquals(2, new SyncClass().run());
+		List<Event> events = EventLogger.getEvents();
+		eventLog = new EventLog(events);
+		
+		Map<SyncEvent.Type, Integer> offsets = new HashMap<>();
+		int putValue = -1;
+		int lastMonitorEnter = -1;
+		for(int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+			if(event.kind == Kind.SYNC) {
+				SyncEvent syncEvent = (SyncEvent) event;
+				offsets.putIfAbsent(syncEvent.type, i);
+				if(syncEvent.type == SyncEvent.Type.MONITOR_ENTER) {
+					lastMonitorEnter = i;
+				}
+			} else if(event.kind == Kind.PUT_FIELD && ((PutFieldEvent) event).name.equals("value")) {
+				putValue = i;
+			}
+		}
+		
+		assertTrue(offsets.containsKey(SyncEvent.Type.THREAD_START));
+		assertTrue(offsets.containsKey(SyncEvent.Type.THREAD_JOIN));
+		assertTrue(offsets.containsKey(SyncEvent.Type.MONITOR_EXIT));
+		assertTrue(offsets.containsKey(SyncEvent.Type.VOLATILE_WRITE));
+		assertTrue(offsets.containsKey(SyncEvent.Type.VOLATILE_READ));
+		
+		HappensBefore happensBefore = eventLog.getHappensBefore();
+		List<Edge> edges = happensBefore.getEdges();
+		assertTrue(edges.size() >= 3);
+		assertTrue(happensBefore.happensBefore(offsets.get(SyncEvent.Type.THREAD_START), putValue));
+		assertTrue(happensBefore.happensBefore(putValue, lastMonitorEnter));
+		assertTrue(happensBefore.happensBefore(putValue, offsets.get(SyncEvent.Type.THREAD_JOIN)));
+		assertTrue(!happensBefore.happensBefore(lastMonitorEnter, putValue));
+	}
+	
+	@Test
+	public void getHappensBefore_concurrent() throws InterruptedException {
+		assertEquals(5, new QueueClass().run());
+		List<Event> events = EventLogger.getEvents();
+		eventLog = new EventLog(events);
+		
+		Thread mainThread = Thread.currentThread();
+		int putRelease = -1;
+		int takeAcquire = -1;
+		for(int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+			if(event.kind != Kind.SYNC) {
+				continue;
+			}
+			SyncEvent syncEvent = (SyncEvent) event;
+			if(syncEvent.type == SyncEvent.Type.RELEASE && event.thread == mainThread && putRelease < 0) {
+				putRelease = i;
+			} else if(syncEvent.type == SyncEvent.Type.ACQUIRE && event.thread != mainThread) {
+				takeAcquire = i;
+			}
+		}
+		
+		assertTrue(putRelease >= 0);
+		assertTrue(takeAcquire >= 0);
+		assertNull(((SyncEvent) events.get(putRelease)).name);
+		
+		HappensBefore happensBefore = eventLog.getHappensBefore();
+		boolean hasEdge = false;
+		for(Edge edge:happensBefore.getEdges()) {
+			hasEdge |= edge.getFromOffset() == putRelease && edge.getToOffset() == takeAcquire;
+		}
+		assertTrue(hasEdge);
+		assertTrue(happensBefore.happensBefore(putRelease, takeAcquire));
+	}
+	
+	@Test
+	public void getLockStats() throws InterruptedException {
+		LockClass lockClass = new LockClass();
+		assertEquals(20, lockClass.run());
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		LockStats lockStats = eventLog.getLockStats();
+		LockStats.Stats monitorStats = lockStats.getMonitorStats().get(lockClass);
+		assertEquals(20, monitorStats.getAcquisitions());
+		assertTrue(monitorStats.getTotalHoldNanos() > 0);
+		
+		int callSiteAcquisitions = 0;
+		for(Map.Entry<String, LockStats.Stats> entry:lockStats.getCallSiteStats().entrySet()) {
+			if(entry.getKey().startsWith("debugger.model.LockClass.increment:")) {
+				assertEquals(10, entry.getValue().getAcquisitions());
+				assertEquals(0, entry.getValue().getTotalWaitNanos());
+			}
+			callSiteAcquisitions += entry.getValue().getAcquisitions();
+		}
+		assertEquals(20, callSiteAcquisitions);
+	}
+	
+	@Test
+	public void getLockStats_uncontended() {
+		LockClass lockClass = new LockClass();
+		assertEquals(100, lockClass.runUncontended());
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		LockStats.Stats monitorStats = eventLog.getLockStats().getMonitorStats().get(lockClass);
+		assertEquals(100, monitorStats.getAcquisitions());
+		assertEquals(0, monitorStats.getContended());
+		assertEquals(0, monitorStats.getTotalWaitNanos());
+	}
+	
+	@Test
+	public void getSlowestCalls() {
+		EventLogger.setTimestampBatch(1);
+		try {
+			QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		} finally {
+			EventLogger.setTimestampBatch(0);
+		}
+		eventLog = new EventLog(EventLogger.getEventBuffer());
+		eventLog.update();
+		eventLog.setThread(getThread());
+		
+		CallStackNode top = eventLog.getCallStack().get(0);
+		assertTrue(top.getInclusiveNanos() > 0);
+		assertTrue(top.getExclusiveNanos() >= 0);
+		assertTrue(top.getExclusiveNanos() <= top.getInclusiveNanos());
+		
+		long childNanos = 0;
+		for(CallStackNode child:top.getChildren()) {
+			childNanos += child.getInclusiveNanos();
+		}
+		assertEquals(top.getInclusiveNanos() - childNanos, top.getExclusiveNanos());
+		
+		List<CallStackNode> slowest = eventLog.getSlowestCalls(3);
+		assertEquals(3, slowest.size());
+		assertEquals(top.getInclusiveNanos(), slowest.get(0).getInclusiveNanos());
+		assertTrue(slowest.get(1).getInclusiveNanos() >= slowest.get(2).getInclusiveNanos());
+	}
+	
+	@Test
+	public void getNanoTime_batch() {
+		EventLogger.setTimestampBatch(4);
+		try {
+			QuickSort.sort(Arrays.asList(5, 2, 7));
+		} finally {
+			EventLogger.setTimestampBatch(0);
+		}
+		eventLog = new EventLog(EventLogger.getEventBuffer());
+		
+		for(int i = 0; i < EventLogger.getEventBuffer().size(); i++) {
+			assertTrue(eventLog.getNanoTime(i) > 0);
+			assertEquals(eventLog.getNanoTime(i - i % 4), eventLog.getNanoTime(i));
+		}
+		assertEquals(-1, new EventLog(EventLogger.getEvents()).getNanoTime(0));
+	}
+	
+	@Test
+	public void getFlameGraph() {
+		QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		eventLog = new EventLog(EventLogger.getEvents());
+		
+		FlameGraph.Node root = eventLog.getFlameGraph().getRoot();
+		assertEquals(EventLogger.getEvents().size(), root.getTotalEvents());
+		assertEquals(1, root.getChildren().size());
+		
+		FlameGraph.Node thread = root.getChildren().get(0);
+		assertEquals(1, thread.getDepth());
+		assertEquals(root.getTotalEvents(), thread.getTotalEvents());
+		
+		FlameGraph.Node sort = thread.getChildren().get(0);
+		assertEquals("sort", sort.getMethodName());
+		assertEquals(1, sort.getCalls());
+		
+		long childEvents = 0;
+		for(FlameGraph.Node child:sort.getChildren()) {
+			childEvents += child.getTotalEvents();
+			assertTrue(child.getCalls() >= 1);
+		}
+		assertEquals(sort.getTotalEvents() - sort.getSelfEvents(), childEvents);
+		assertTrue(sort.getChildren().stream().anyMatch(child -> child.getCalls() > 1));
+	}
+	
+	@Test
+	public void parallelIndexBuilder() throws InterruptedException {
+		new Instrumentor().instrumentClass(FieldClass.class);
+		EventLogger.clear();
+		
+		FieldClass object = new FieldClass();
+		List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			threads.add(new Thread(() -> {
+				QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+				object.setValues();
+			}));
+		}
+		for(Thread thread:threads) {
+			thread.start();
+		}
+		for(Thread thread:threads) {
+			thread.join();
+		}
+		
+		List<Event> events = EventLogger.getEvents();
+		CallTree callTree = new CallTree(events);
+		LineHistogram lineHistogram = new LineHistogram();
+		ValueHistory valueHistory = new ValueHistory(events);
+		for(int offset = 0; offset < events.size(); offset++) {
+			callTree.add(offset, events.get(offset));
+			lineHistogram.add(offset, events.get(offset));
+			valueHistory.add(offset, events.get(offset));
+		}
+		
+		CallTree parallelCallTree = new CallTree(events);
+		LineHistogram parallelLineHistogram = new LineHistogram();
+		ValueHistory parallelValueHistory = new ValueHistory(events);
+		ThreadRegistry threadRegistry = new ThreadRegistry();
+		AtomicLong maxProgress = new AtomicLong();
+		AtomicLong progressTotal = new AtomicLong();
+		new ParallelIndexBuilder(events, new ForkJoinPool(4), 64, (indexed, total) -> {
+			maxProgress.accumulateAndGet(indexed, Math::max);
+			progressTotal.set(total);
+		}).build(events.size(), List.of(parallelCallTree, parallelLineHistogram, parallelValueHistory), List.of(threadRegistry));
+		
+		assertEquals(4L * events.size(), progressTotal.get());
+		assertEquals(progressTotal.get(), maxProgress.get());
+		assertTrue(threadRegistry.getThreads().containsAll(threads));
+		
+		for(Thread thread:threadRegistry.getThreads()) {
+			assertCallsEqual(callTree, parallelCallTree, thread, CallTree.ROOT);
+		}
+		for(Thread thread:threads) {
+			assertTrue(parallelCallTree.getChildCount(thread, CallTree.ROOT) > 0);
+		}
+		
+		File sourceFile = new File("test/debugger/model/QuickSort.java");
+		assertEquals(Arrays.toString(lineHistogram.getLineCounts(sourceFile)), Arrays.toString(parallelLineHistogram.getLineCounts(sourceFile)));
+		
+		List<ValueChange> history = parallelValueHistory.getFieldHistory(object, "value");
+		assertEquals(9, history.size());
+		assertEquals(valueHistory.getFieldHistory(object, "value").toString(), history.toString());
+	}
+	
+	@Test
+	public void parallelIndexBuild_inBackground() throws InterruptedException {
+		EventLogger.clear();
+		while(EventLogger.getEventBuffer().size() < 1 << 16) {
+			QuickSort.sort(Arrays.asList(5, 2, 7, 5, 9, 8, 7, 1, 3));
+		}
+		eventLog = new EventLog(EventLogger.getEventBuffer());
+		
+		List<Runnable> scheduled = Collections.synchronizedList(new ArrayList<>());
+		List<Set<EventLog.Change>> notifications = new ArrayList<>();
+		eventLog.setNotificationExecutor(scheduled::add);
+		eventLog.addChangeListener(notifications::add);
+		notifications.clear();
+		
+		assertTrue(eventLog.update());
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while(eventLog.getThreads().isEmpty()) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+		assertTrue(eventLog.getIndexProgress() == 1);
+		
+		for(Runnable task:new ArrayList<>(scheduled)) {
+			task.run();
+		}
+		assertTrue(notifications.stream().anyMatch(changes -> changes.contains(EventLog.Change.INDEXING)));
+		
+		EventLog expected = new EventLog(EventLogger.getEvents());
+		assertEquals(expected.search("call sort").length, eventLog.search("call sort").length);
+		File sourceFile = new File("test/debugger/model/QuickSort.java");
+		assertEquals(Arrays.toString(expected.getLineCounts(sourceFile)), Arrays.toString(eventLog.getLineCounts(sourceFile)));
+	}
+	
+	private static void assertCallsEqual(CallTree expected, CallTree actual, Thread thread, int call) {
+		int[] children = expected.getChildren(thread, call);
+		assertEquals(Arrays.toString(children), Arrays.toString(actual.getChildren(thread, call)));
+		for(int child:children) {
+			assertEquals(expected.getStartOffset(thread, child), actual.getStartOffset(thread, child));
+			assertEquals(expected.getEndOffset(thread, child), actual.getEndOffset(thread, child));
+			assertCallsEqual(expected, actual, thread, child);
+		}
+	}
+}
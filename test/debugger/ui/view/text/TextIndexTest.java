@@ -0,0 +1,56 @@
+package debugger.ui.view.text;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.swt.custom.StyleRange;
+import org.junit.Test;
+
+public class TextIndexTest {
+	private static StyleRange range(int start, int length) {
+		StyleRange range = new StyleRange();
+		range.start = start;
+		range.length = length;
+		return range;
+	}
+	
+	@Test
+	public void matchingBracketsSameAsBracketMatcher() {
+		String text = "class A { void f(List<Integer> a) { if(a[0] < 2) { g((1)); } } ) ] (";
+		TextIndex textIndex = new TextIndex(text, new StyleRange[0]);
+		BracketMatcher bracketMatcher = new BracketMatcher();
+		
+		for(int x = 0; x < text.length(); x++) {
+			int expected = bracketMatcher.getMatchingParen(text, x).orElse(-1);
+			if(expected == x) {
+				expected = -1;
+			}
+			assertEquals("Offset " + x, expected, textIndex.getMatchingBracket(x));
+		}
+	}
+	
+	@Test
+	public void wordOffsets() {
+		String text = "a ab a_b a\nab a";
+		TextIndex textIndex = new TextIndex(text, new StyleRange[0]);
+		
+		assertArrayEquals(new int[] { 0, 9, 14 }, textIndex.getWordOffsets("a", 0, text.length()));
+		assertArrayEquals(new int[] { 9 }, textIndex.getWordOffsets("a", 1, 14));
+		assertArrayEquals(new int[] { 2, 11 }, textIndex.getWordOffsets("ab", 0, text.length()));
+		assertArrayEquals(new int[0], textIndex.getWordOffsets("b", 0, text.length()));
+	}
+	
+	@Test
+	public void styleRangesInRegion() {
+		TextIndex textIndex = new TextIndex("abcdefghij", new StyleRange[] { range(0, 3), range(4, 4), range(9, 1) });
+		
+		StyleRange[] ranges = textIndex.getStyleRanges(2, 4);
+		assertEquals(2, ranges.length);
+		assertEquals(2, ranges[0].start);
+		assertEquals(1, ranges[0].length);
+		assertEquals(4, ranges[1].start);
+		assertEquals(2, ranges[1].length);
+		
+		assertEquals(0, textIndex.getStyleRanges(3, 1).length);
+	}
+}